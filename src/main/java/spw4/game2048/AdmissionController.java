@@ -0,0 +1,171 @@
+package spw4.game2048;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which requests are served when the server is under
+ * load. Moves on existing games take priority over creating new
+ * games: new games may not use the last part of the global rate
+ * and are shed first when the measured queueing delay exceeds its
+ * target, moves only when it exceeds four times the target. Each
+ * client is additionally limited by its own token buckets.
+ */
+public class AdmissionController {
+
+    public final static double DEFAULT_GLOBAL_RATE = 2000;
+    public final static double DEFAULT_CLIENT_RATE = 50;
+    public final static double DEFAULT_NEW_GAME_RATE = 2;
+    public final static long DEFAULT_TARGET_DELAY_MILLIS = 50;
+
+    private final static double NEW_GAME_RESERVE = 0.5;
+    private final static double MOVE_DELAY_FACTOR = 4;
+    private final static double SMOOTHING = 0.1;
+    private final static int MAX_CLIENTS = 10_000;
+
+    private final double globalRate;
+    private final double clientRate;
+    private final double newGameRate;
+    private final long targetDelayNanos;
+    private final LongSupplier clock;
+    private final TokenBucket global;
+    private final Map<String, TokenBucket> clients = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> newGameClients = new ConcurrentHashMap<>();
+    private final AtomicLong delay = new AtomicLong(Double.doubleToLongBits(0));
+    private final AtomicLong admissions = new AtomicLong();
+
+    private final LongAdder admittedMoves = new LongAdder();
+    private final LongAdder admittedNewGames = new LongAdder();
+    private final LongAdder rejectedMoves = new LongAdder();
+    private final LongAdder rejectedNewGames = new LongAdder();
+    private final LongAdder rejectedOverload = new LongAdder();
+
+    public AdmissionController() {
+        this(DEFAULT_GLOBAL_RATE, DEFAULT_CLIENT_RATE, DEFAULT_NEW_GAME_RATE, DEFAULT_TARGET_DELAY_MILLIS, System::nanoTime);
+    }
+
+    public AdmissionController(double globalRate, double clientRate, double newGameRate, long targetDelayMillis, LongSupplier clock) {
+        this.globalRate = globalRate;
+        this.clientRate = clientRate;
+        this.newGameRate = newGameRate;
+        this.targetDelayNanos = targetDelayMillis * 1_000_000;
+        this.clock = clock;
+        this.global = new TokenBucket(globalRate, globalRate, clock);
+    }
+
+    /**
+     * Decides whether a request is served.
+     *
+     * @return 0 if the request is admitted, otherwise the number of
+     * seconds after which the client should retry
+     */
+    public long admit(String client, boolean newGame) {
+        if (admissions.incrementAndGet() % 1024 == 0) {
+            evictIdleClients();
+        }
+
+        double currentDelay = getDelayNanos();
+        if (currentDelay > (newGame ? targetDelayNanos : MOVE_DELAY_FACTOR * targetDelayNanos)) {
+            rejectedOverload.increment();
+            return reject(newGame, Math.max(1, (long) Math.ceil(currentDelay / 1e9)));
+        }
+
+        TokenBucket clientBucket = clients.computeIfAbsent(client, c -> new TokenBucket(2 * clientRate, clientRate, clock));
+        if (!clientBucket.tryAcquire()) {
+            return reject(newGame, Math.max(1, clientBucket.secondsUntilAvailable(0)));
+        }
+
+        TokenBucket newGameBucket = null;
+        if (newGame) {
+            newGameBucket = newGameClients.computeIfAbsent(client,
+                    c -> new TokenBucket(Math.max(1, 5 * newGameRate), newGameRate, clock));
+            if (!newGameBucket.tryAcquire()) {
+                clientBucket.release();
+                return reject(true, Math.max(1, newGameBucket.secondsUntilAvailable(0)));
+            }
+        }
+
+        double reserve = newGame ? NEW_GAME_RESERVE * global.getCapacity() : 0;
+        if (!global.tryAcquire(reserve)) {
+            clientBucket.release();
+            if (newGameBucket != null) {
+                newGameBucket.release();
+            }
+            return reject(newGame, Math.max(1, global.secondsUntilAvailable(reserve)));
+        }
+
+        (newGame ? admittedNewGames : admittedMoves).increment();
+        return 0;
+    }
+
+    /**
+     * Adds a sample to the smoothed queueing delay, the time an
+     * admitted request waited before it was handled.
+     */
+    public void observeDelay(long nanos) {
+        long current;
+        long updated;
+        do {
+            current = delay.get();
+            double smoothed = Double.longBitsToDouble(current);
+            updated = Double.doubleToLongBits(smoothed + SMOOTHING * (Math.max(0, nanos) - smoothed));
+        } while (!delay.compareAndSet(current, updated));
+    }
+
+    public double getDelayNanos() {
+        return Double.longBitsToDouble(delay.get());
+    }
+
+    public double getGlobalRate() {
+        return globalRate;
+    }
+
+    public double getClientRate() {
+        return clientRate;
+    }
+
+    public double getNewGameRate() {
+        return newGameRate;
+    }
+
+    public long getTargetDelayMillis() {
+        return targetDelayNanos / 1_000_000;
+    }
+
+    public long getAdmittedMoves() {
+        return admittedMoves.sum();
+    }
+
+    public long getAdmittedNewGames() {
+        return admittedNewGames.sum();
+    }
+
+    public long getRejectedMoves() {
+        return rejectedMoves.sum();
+    }
+
+    public long getRejectedNewGames() {
+        return rejectedNewGames.sum();
+    }
+
+    public long getRejectedOverload() {
+        return rejectedOverload.sum();
+    }
+
+    private long reject(boolean newGame, long retryAfterSeconds) {
+        (newGame ? rejectedNewGames : rejectedMoves).increment();
+        return retryAfterSeconds;
+    }
+
+    private void evictIdleClients() {
+        if (clients.size() > MAX_CLIENTS) {
+            clients.values().removeIf(TokenBucket::isFull);
+        }
+        if (newGameClients.size() > MAX_CLIENTS) {
+            newGameClients.values().removeIf(TokenBucket::isFull);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build step which copies the static assets under a name
+ * containing a hash of their content, writes precompressed
+ * gzip (and brotli, if the {@code brotli} command is available)
+ * variants and a manifest mapping the original paths to the
+ * fingerprinted ones. References to fonts in style sheets are
+ * rewritten to the fingerprinted names as well.
+ */
+public class AssetPipeline {
+
+    private final static List<String> DIRECTORIES = List.of("css", "icons", "js");
+    private final static Set<String> COMPRESSIBLE = Set.of("css", "js", "svg", "json", "txt");
+    private final static Pattern CSS_URL = Pattern.compile("url\\(\\s*([\"']?)([^\"')?#]+)([?#][^\"')]*)?\\1\\s*\\)");
+
+    private final Path source;
+    private final Path target;
+    private final boolean brotli;
+    private final Map<String, String> manifest = new TreeMap<>();
+
+    public AssetPipeline(Path source, Path target) {
+        this.source = source;
+        this.target = target;
+        this.brotli = brotliAvailable();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path source = Paths.get(args.length > 0 ? args[0] : "src/main/webapp");
+        Path target = Paths.get(args.length > 1 ? args[1] : "target/game2048");
+
+        Map<String, String> manifest = new AssetPipeline(source, target).run();
+        System.out.println("Fingerprinted " + manifest.size() + " assets into " + target);
+    }
+
+    public Map<String, String> run() throws IOException {
+        List<String> assets = new ArrayList<>();
+        for (String directory : DIRECTORIES) {
+            Path root = source.resolve(directory);
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root)) {
+                assets.addAll(files.filter(Files::isRegularFile)
+                        .map(file -> source.relativize(file).toString().replace('\\', '/'))
+                        .filter(path -> !path.endsWith(".map"))
+                        .sorted()
+                        .collect(Collectors.toList()));
+            }
+        }
+
+        // style sheets last, so the fingerprinted names of the files they reference are known
+        for (String asset : assets) {
+            if (!"css".equals(extension(asset))) {
+                process(asset, Files.readAllBytes(source.resolve(asset)));
+            }
+        }
+        for (String asset : assets) {
+            if ("css".equals(extension(asset))) {
+                String css = new String(Files.readAllBytes(source.resolve(asset)), StandardCharsets.UTF_8);
+                process(asset, rewrite(asset, css).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        writeManifest();
+        return manifest;
+    }
+
+    private void process(String asset, byte[] content) throws IOException {
+        String fingerprinted = fingerprint(asset, content);
+        Path file = target.resolve(fingerprinted);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+
+        if (COMPRESSIBLE.contains(extension(asset))) {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target.resolve(fingerprinted + ".gz"))) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                out.write(content);
+            }
+            if (brotli) {
+                compressWithBrotli(file);
+            }
+        }
+
+        manifest.put(asset, fingerprinted);
+    }
+
+    String rewrite(String asset, String css) {
+        String directory = asset.contains("/") ? asset.substring(0, asset.lastIndexOf('/') + 1) : "";
+        Matcher matcher = CSS_URL.matcher(css);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String reference = matcher.group(2);
+            String fingerprinted = manifest.get(directory + reference);
+            String replacement = fingerprinted == null
+                    ? matcher.group()
+                    : "url(" + matcher.group(1) + fingerprinted.substring(directory.length()) + matcher.group(1) + ")";
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    static String fingerprint(String asset, byte[] content) {
+        String hash;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            hash = hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        int dot = asset.lastIndexOf('.');
+        return dot <= asset.lastIndexOf('/') ? asset + "." + hash : asset.substring(0, dot) + "." + hash + asset.substring(dot);
+    }
+
+    private void writeManifest() throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(manifest);
+        Path file = target.resolve(Assets.MANIFEST.substring(1));
+        Files.createDirectories(file.getParent());
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+            properties.store(writer, "Fingerprinted static assets");
+        }
+    }
+
+    private static String extension(String asset) {
+        int dot = asset.lastIndexOf('.');
+        return dot < 0 ? "" : asset.substring(dot + 1);
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Process process = new ProcessBuilder("brotli", "--version").redirectErrorStream(true).start();
+            process.getInputStream().readAllBytes();
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void compressWithBrotli(Path file) throws IOException {
+        try {
+            Process process = new ProcessBuilder("brotli", "--best", "--force", "--keep",
+                    "--output=" + file + ".br", file.toString()).inheritIO().start();
+            if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                throw new IOException("brotli failed for " + file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing " + file, e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package spw4.game2048;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves static assets to their fingerprinted names as listed
+ * in the manifest written by {@link AssetPipeline}. Without a
+ * manifest, e.g. when running from the source directory, assets
+ * keep their original names.
+ */
+public class Assets {
+
+    public final static String MANIFEST = "/WEB-INF/assets.properties";
+    private final static String ATTRIBUTE = Assets.class.getName();
+
+    private final Properties manifest = new Properties();
+    private final Set<String> fingerprinted = new HashSet<>();
+
+    Assets(InputStream manifest) throws IOException {
+        if (manifest != null) {
+            this.manifest.load(manifest);
+            fingerprinted.addAll(this.manifest.stringPropertyNames().stream()
+                    .map(this.manifest::getProperty)
+                    .collect(Collectors.toSet()));
+        }
+    }
+
+    /**
+     * Returns the assets of the given context, loading the
+     * manifest on first use.
+     */
+    public static Assets of(ServletContext context) {
+        Object assets = context.getAttribute(ATTRIBUTE);
+        if (assets instanceof Assets) {
+            return (Assets) assets;
+        }
+
+        try (InputStream manifest = context.getResourceAsStream(MANIFEST)) {
+            Assets loaded = new Assets(manifest);
+            context.setAttribute(ATTRIBUTE, loaded);
+            return loaded;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load " + MANIFEST, e);
+        }
+    }
+
+    public String url(String path) {
+        return manifest.getProperty(path, path);
+    }
+
+    public boolean isFingerprinted(String path) {
+        return fingerprinted.contains(path);
+    }
+}
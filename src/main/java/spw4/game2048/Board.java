@@ -1,6 +1,8 @@
 package spw4.game2048;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * This class represents the game board. It provides
@@ -9,12 +11,29 @@ import java.util.*;
  */
 public class Board {
     private final static int BOARD_SIZE = 4;
+    private final static Position[][] POSITIONS = new Position[BOARD_SIZE][BOARD_SIZE];
     private int[][] board;
     private int points;
-    public static Random random;
+    private final int[] line = new int[BOARD_SIZE];
+    private final int[] sources = new int[BOARD_SIZE];
+    private Position spawned;
+    public Random random;
     public List<Position> emptyPositions = new ArrayList<>();
 
+    static {
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int column = 0; column < BOARD_SIZE; column++) {
+                POSITIONS[row][column] = new Position(row, column);
+            }
+        }
+    }
+
     public Board() {
+        this(new Random());
+    }
+
+    public Board(Random random) {
+        this.random = random;
         board = new int[BOARD_SIZE][BOARD_SIZE];
     }
 
@@ -82,89 +101,96 @@ public class Board {
     }
 
     public boolean move(Direction direction) {
+        return move(direction, null);
+    }
+
+    /**
+     * Moves like {@link #move(Direction)} and describes which tiles
+     * slid, merged and spawned.
+     */
+    public MoveResult moveAndReport(Direction direction) {
+        long previousBoard = pack();
+        int previousPoints = points;
+        List<MoveResult.Slide> slides = new ArrayList<>();
+
+        boolean moved = move(direction, slides);
+        return new MoveResult(direction, moved, previousBoard, pack(), points - previousPoints, slides,
+                moved ? spawned : null, moved && spawned != null ? getTileValue(spawned.getRow(), spawned.getColumn()) : 0);
+    }
+
+    private boolean move(Direction direction, List<MoveResult.Slide> slides) {
 
         boolean leftRight = direction == Direction.left || direction == Direction.right;
         boolean leftUp = direction == Direction.left || direction == Direction.up;
-
-        int[][] oldBoard = new int[BOARD_SIZE][BOARD_SIZE];
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int column = 0; column < BOARD_SIZE; column++) {
-                oldBoard[row][column] = board[row][column];
-            }
-        }
+        boolean moved = false;
+        spawned = null;
 
         for (int i = 0; i < BOARD_SIZE; i++) {
 
-            LinkedList<Integer> currentElements = new LinkedList<>();
-
-            for (int j = 0; j < BOARD_SIZE; j++) {
-
-                int row = leftRight ? i : j;
-                int column = leftRight ? j : i;
-
-                if (getTileValue(row, column) != 0) {
-                    if(leftUp) {
-                        currentElements.addLast(getTileValue(row, column));
-                    } else {
-                        currentElements.addFirst(getTileValue(row, column));
-                    }
+            int count = 0;
+            for (int k = 0; k < BOARD_SIZE; k++) {
+                int j = leftUp ? k : BOARD_SIZE - 1 - k;
+                int value = leftRight ? board[i][j] : board[j][i];
+                if (value != 0) {
+                    sources[count] = j;
+                    line[count++] = value;
                 }
             }
 
-            LinkedList<Integer> updatedElements = new LinkedList<>();
-            while (currentElements.size() > 1) {
-                int firstValue = currentElements.remove();
-                int secondValue = currentElements.getFirst();
-                if (firstValue == secondValue) {
-                    int mergedValue = firstValue * 2;
-                    updatedElements.add(mergedValue);
-                    points += mergedValue;
-                    currentElements.remove();
-                } else {
-                    updatedElements.add(firstValue);
+            int merged = 0;
+            for (int k = 0; k < count; k++) {
+                int value = line[k];
+                int target = leftUp ? merged : BOARD_SIZE - 1 - merged;
+                if (k + 1 < count && line[k + 1] == value) {
+                    if (slides != null) {
+                        slides.add(new MoveResult.Slide(position(i, sources[k], leftRight), position(i, target, leftRight), value, true));
+                        slides.add(new MoveResult.Slide(position(i, sources[k + 1], leftRight), position(i, target, leftRight), value, true));
+                    }
+                    value *= 2;
+                    points += value;
+                    k++;
+                } else if (slides != null && sources[k] != target) {
+                    slides.add(new MoveResult.Slide(position(i, sources[k], leftRight), position(i, target, leftRight), value, false));
                 }
+                line[merged++] = value;
             }
-            updatedElements.addAll(currentElements);
-
-            int j = leftUp ? 0 : BOARD_SIZE - 1;
-            while ((leftUp && j < BOARD_SIZE) || (!leftUp && j >= 0)) {
 
+            for (int k = 0; k < BOARD_SIZE; k++) {
+                int j = leftUp ? k : BOARD_SIZE - 1 - k;
                 int row = leftRight ? i : j;
                 int column = leftRight ? j : i;
+                int value = k < merged ? line[k] : 0;
 
-                if (updatedElements.isEmpty()) {
-                    setTileValue(0, row, column);
-                } else {
-                    setTileValue(updatedElements.remove(), row, column);
-                }
-
-                if (leftUp) {
-                    j++;
-
-                } else {
-                    j--;
+                if (board[row][column] != value) {
+                    board[row][column] = value;
+                    moved = true;
                 }
             }
         }
 
-        boolean moved = !Arrays.deepEquals(oldBoard, board);
+        updateEmptyPositions();
 
         if(emptyPositions.size() > 0 && moved) {
             var value = random.nextInt(100) < 90 ? 2 : 4;
             var randomIndex = random.nextInt(emptyPositions.size());
             var randomPosition = emptyPositions.get(randomIndex);
             setTileValue(value, randomPosition.getRow() , randomPosition.getColumn());
+            spawned = randomPosition;
         }
 
         return moved;
     }
 
+    private static Position position(int line, int index, boolean leftRight) {
+        return leftRight ? POSITIONS[line][index] : POSITIONS[index][line];
+    }
+
     public void updateEmptyPositions() {
         emptyPositions.clear();
         for (int row = 0; row < BOARD_SIZE; row++) {
             for (int column = 0; column < BOARD_SIZE; column++) {
-                if(getTileValue(row, column) == 0) {
-                    emptyPositions.add(new Position(row, column));
+                if(board[row][column] == 0) {
+                    emptyPositions.add(POSITIONS[row][column]);
                 }
             }
         }
@@ -174,6 +200,40 @@ public class Board {
         return points;
     }
 
+    void setPoints(int points) {
+        this.points = points;
+    }
+
+    /**
+     * Packs the board into a single long, four bits per tile
+     * holding the exponent of its value (0 for an empty tile),
+     * row by row starting at the lowest bits.
+     */
+    public long pack() {
+        long packed = 0;
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int column = 0; column < BOARD_SIZE; column++) {
+                int value = board[row][column];
+                int exponent = value == 0 ? 0 : Integer.numberOfTrailingZeros(value);
+                if (exponent > 15) {
+                    throw new IllegalStateException("Tile value is too large to be packed.");
+                }
+                packed |= (long) exponent << (4 * (row * BOARD_SIZE + column));
+            }
+        }
+        return packed;
+    }
+
+    public void unpack(long packed) {
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int column = 0; column < BOARD_SIZE; column++) {
+                int exponent = (int) (packed >>> (4 * (row * BOARD_SIZE + column))) & 0xF;
+                board[row][column] = exponent == 0 ? 0 : 1 << exponent;
+            }
+        }
+        updateEmptyPositions();
+    }
+
     public boolean hasValidMoves() {
         for (int row = 0; row < BOARD_SIZE; row++) {
             for (int column = 0; column < BOARD_SIZE; column++) {
@@ -0,0 +1,86 @@
+package spw4.game2048;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Assigns game ids to node ids using consistent hashing. Every
+ * node is placed on the ring several times (virtual nodes), so
+ * games are spread evenly and only about 1/n of them change
+ * their owner when a node joins or leaves.
+ */
+public class ConsistentHashRing {
+
+    private final int virtualNodes;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("At least one virtual node is required.");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Returns a ring with the same nodes, which can be changed
+     * without affecting this one.
+     */
+    public synchronized ConsistentHashRing copy() {
+        ConsistentHashRing copy = new ConsistentHashRing(virtualNodes);
+        copy.ring.putAll(ring);
+        return copy;
+    }
+
+    public synchronized void add(String node) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.put(hash(node + "#" + i), node);
+        }
+    }
+
+    public synchronized void remove(String node) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.remove(hash(node + "#" + i), node);
+        }
+    }
+
+    public synchronized boolean contains(String node) {
+        return ring.containsValue(node);
+    }
+
+    public synchronized boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    public synchronized String ownerOf(UUID id) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("Ring does not contain any nodes.");
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(id));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    static long hash(UUID id) {
+        return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+    }
+
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -1,15 +1,28 @@
 package spw4.game2048;
 
-import java.util.Random;
+import java.util.Arrays;
 
 public class Game {
 
+    public final static long DEFAULT_SEED = 1234;
+    private final static Direction[] DIRECTIONS = Direction.values();
+
     public Board board;
     private int moves;
+    private long version;
+    private final long seed;
+    private byte[] history = new byte[16];
+    private int historyLength;
+    private boolean replayable = true;
+    private MoveResult lastMove;
 
     public Game() {
-        board = new Board();
-        Board.random = new Random(1234);
+        this(DEFAULT_SEED);
+    }
+
+    public Game(long seed) {
+        this.seed = seed;
+        board = new Board(new GameRandom(seed));
     }
 
     public int getScore() {
@@ -20,6 +33,37 @@ public class Game {
         return moves;
     }
 
+    /**
+     * Returns the state version, which increases whenever the
+     * board changes and stays the same for moves which do not
+     * change the board.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the directions of all moves which changed the
+     * board, as {@link Direction} ordinals in the order played.
+     * Games restored without their history only record the moves
+     * played after restoring.
+     */
+    public byte[] getHistory() {
+        return Arrays.copyOf(history, historyLength);
+    }
+
+    /**
+     * Returns whether the game can be replayed from its seed and
+     * history, which is not the case for restored games.
+     */
+    public boolean isReplayable() {
+        return replayable;
+    }
+
     public boolean isOver() {
         return !board.hasValidMoves() || isWon();
     }
@@ -45,13 +89,126 @@ public class Game {
         return builder.toString();
     }
 
+    /**
+     * Restores a game from its packed state. New tiles are spawned
+     * from the given random state, or from the seed if the state is
+     * negative because it is unknown. Given the history of all moves,
+     * the game stays replayable and continues it.
+     */
+    public static Game restore(long board, int score, int moves, long version, long seed, long randomState,
+                               byte[] history) {
+        Game game = new Game(seed);
+        if (history != null) {
+            game.history = Arrays.copyOf(history, Math.max(16, history.length));
+            game.historyLength = history.length;
+        } else {
+            game.replayable = false;
+        }
+        if (randomState >= 0) {
+            ((GameRandom) game.board.random).setState(randomState);
+        }
+        game.board.unpack(board);
+        game.board.setPoints(score);
+        game.moves = moves;
+        game.version = version;
+        return game;
+    }
+
     public void initialize() {
         board.initialize();
+        version++;
+        lastMove = null;
     }
 
     public void move(Direction direction) {
         if(board.move(direction)) {
-            moves++;
+            recordMove(direction);
+            lastMove = null;
+        }
+    }
+
+    /**
+     * Moves like {@link #move(Direction)} and returns what the move
+     * did to the board.
+     */
+    public MoveResult moveAndReport(Direction direction) {
+        MoveResult result = board.moveAndReport(direction);
+        if (result.isMoved()) {
+            recordMove(direction);
+            lastMove = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the result of the move which led from the previous
+     * to the current state version, or null if that change was not
+     * made by {@link #moveAndReport(Direction)}.
+     */
+    public MoveResult getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * Returns the state of the random generator spawning new tiles,
+     * or -1 if it cannot be read.
+     */
+    public long getRandomState() {
+        return board.random instanceof GameRandom ? ((GameRandom) board.random).getState() : -1;
+    }
+
+    /**
+     * Plays moves made by a client which applies the same rules from
+     * the same random state, given as {@link Direction} ordinals, and
+     * keeps them only if every move changes the board and they lead
+     * to the board and score the client reported. Otherwise the game
+     * is left unchanged.
+     *
+     * @return whether the moves were accepted
+     */
+    public boolean playBatch(byte[] directions, long expectedBoard, int expectedScore) {
+        if (!(board.random instanceof GameRandom)) {
+            return false;
+        }
+        GameRandom random = (GameRandom) board.random;
+        long savedBoard = board.pack();
+        int savedPoints = board.getPoints();
+        long savedRandom = random.getState();
+        int savedMoves = moves;
+        long savedVersion = version;
+        int savedHistoryLength = historyLength;
+        MoveResult savedLastMove = lastMove;
+
+        boolean valid = true;
+        for (byte direction : directions) {
+            if (direction < 0 || direction >= DIRECTIONS.length || isOver() || !board.move(DIRECTIONS[direction])) {
+                valid = false;
+                break;
+            }
+            recordMove(DIRECTIONS[direction]);
+        }
+
+        if (valid && board.pack() == expectedBoard && board.getPoints() == expectedScore) {
+            lastMove = null;
+            return true;
+        }
+
+        board.unpack(savedBoard);
+        board.setPoints(savedPoints);
+        random.setState(savedRandom);
+        moves = savedMoves;
+        version = savedVersion;
+        historyLength = savedHistoryLength;
+        lastMove = savedLastMove;
+        return false;
+    }
+
+    private void recordMove(Direction direction) {
+        if (historyLength == history.length) {
+            history = Arrays.copyOf(history, 2 * history.length);
         }
+        history[historyLength++] = (byte) direction.ordinal();
+        moves++;
+        version++;
     }
 }
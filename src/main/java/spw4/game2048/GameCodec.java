@@ -0,0 +1,208 @@
+package spw4.game2048;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Compact, versioned binary encoding of a {@link GameState}.
+ * <p>
+ * Layout: version (1 byte), game id (16 bytes), packed board
+ * (8 bytes, 4-bit exponent per tile), score, moves and state
+ * version (unsigned varints), seed (8 bytes) and the state of the
+ * random generator plus one, zero if it is unknown (unsigned
+ * varint), and the number of moves in the history plus one, zero if
+ * the history is not included (unsigned varint), followed by the
+ * moves with two bits each, four per byte. Other versions are
+ * rejected. States are encoded into
+ * and decoded from the caller's buffer without intermediate
+ * copies. Varints longer than their type or overflowing it are
+ * rejected.
+ * <p>
+ * {@link GameDelta Deltas} start with a tag byte which cannot be
+ * mistaken for a state version, followed by the base version, the
+ * difference to the new version, score and moves (unsigned
+ * varints), the number of changed cells (1 byte) and one byte per
+ * changed cell. The game id is not repeated, the client knows it.
+ */
+public class GameCodec {
+
+    public final static String CONTENT_TYPE = "application/vnd.game2048.state";
+    public final static byte VERSION = 3;
+    public final static int MAX_SIZE = 1 + 16 + 8 + 5 + 5 + 10 + 8 + 7 + 5;
+    public final static String DELTA_CONTENT_TYPE = "application/vnd.game2048.delta";
+    public final static byte DELTA_TAG = (byte) 0x81;
+    public final static int MAX_DELTA_SIZE = 1 + 10 + 10 + 5 + 5 + 1 + 16;
+
+    private GameCodec() {
+    }
+
+    public static void encode(GameState state, ByteBuffer buffer) {
+        buffer.put(VERSION);
+        buffer.putLong(state.getId().getMostSignificantBits());
+        buffer.putLong(state.getId().getLeastSignificantBits());
+        buffer.putLong(state.getBoard());
+        putVarInt(buffer, state.getScore());
+        putVarInt(buffer, state.getMoves());
+        putVarLong(buffer, state.getVersion());
+        buffer.putLong(state.getSeed());
+        putVarLong(buffer, state.getRandomState() + 1);
+
+        byte[] history = state.getHistory();
+        if (history == null) {
+            putVarInt(buffer, 0);
+            return;
+        }
+        putVarInt(buffer, history.length + 1);
+        for (int i = 0; i < history.length; i += 4) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < history.length; j++) {
+                packed |= (history[i + j] & 0x3) << (2 * j);
+            }
+            buffer.put((byte) packed);
+        }
+    }
+
+    /**
+     * Returns the maximum number of bytes needed to encode the given
+     * state, which is {@link #MAX_SIZE} for states without history.
+     */
+    public static int maxSize(GameState state) {
+        byte[] history = state.getHistory();
+        return MAX_SIZE + (history == null ? 0 : (history.length + 3) / 4);
+    }
+
+    public static byte[] encode(GameState state) {
+        ByteBuffer buffer = ByteBuffer.allocate(maxSize(state));
+        encode(state, buffer);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    public static GameState decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported encoding version " + version + ".");
+            }
+            UUID id = new UUID(buffer.getLong(), buffer.getLong());
+            long board = buffer.getLong();
+            int score = getVarInt(buffer);
+            int moves = getVarInt(buffer);
+            long stateVersion = getVarLong(buffer);
+            long seed = buffer.getLong();
+            long randomState = getVarLong(buffer) - 1;
+            int historyLength = getVarInt(buffer) - 1;
+            byte[] history = null;
+            if (historyLength >= 0) {
+                if ((historyLength + 3) / 4 > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                history = new byte[historyLength];
+                for (int i = 0; i < historyLength; i += 4) {
+                    int packed = buffer.get();
+                    for (int j = 0; j < 4 && i + j < historyLength; j++) {
+                        history[i + j] = (byte) ((packed >>> (2 * j)) & 0x3);
+                    }
+                }
+            }
+            return new GameState(id, board, score, moves, stateVersion, seed, randomState, history);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Encoded game state is truncated.", e);
+        }
+    }
+
+    public static void encode(GameDelta delta, ByteBuffer buffer) {
+        byte[] cells = delta.getCells();
+        buffer.put(DELTA_TAG);
+        putVarLong(buffer, delta.getBaseVersion());
+        putVarLong(buffer, delta.getVersion() - delta.getBaseVersion());
+        putVarInt(buffer, delta.getScore());
+        putVarInt(buffer, delta.getMoves());
+        buffer.put((byte) cells.length);
+        buffer.put(cells);
+    }
+
+    public static byte[] encode(GameDelta delta) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DELTA_SIZE);
+        encode(delta, buffer);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    public static GameDelta decodeDelta(ByteBuffer buffer) {
+        try {
+            byte tag = buffer.get();
+            if (tag != DELTA_TAG) {
+                throw new IllegalArgumentException("Not an encoded game delta.");
+            }
+            long baseVersion = getVarLong(buffer);
+            long version = baseVersion + getVarLong(buffer);
+            int score = getVarInt(buffer);
+            int moves = getVarInt(buffer);
+            int count = buffer.get();
+            if (count < 0 || count > 16) {
+                throw new IllegalArgumentException("Invalid number of changed cells " + count + ".");
+            }
+            byte[] cells = new byte[count];
+            buffer.get(cells);
+            return new GameDelta(baseVersion, version, score, moves, cells);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Encoded game delta is truncated.", e);
+        }
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative.");
+        }
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative.");
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buffer.get();
+            if (shift == 63 && (b & 0x7F) != 0) {
+                throw new IllegalArgumentException("Varint overflows a long.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long.");
+    }
+
+    static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            if (shift == 28 && (b & 0x7F) > 0x07) {
+                throw new IllegalArgumentException("Varint overflows an int.");
+            }
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long.");
+    }
+}
@@ -0,0 +1,85 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+
+/**
+ * Changes between two state versions of a game: the cells whose
+ * tile changed, each as one byte holding the cell index (row * 4 +
+ * column) in the high and the new exponent in the low four bits,
+ * and the new score and move count. Clients holding the base
+ * version apply it instead of receiving the full state.
+ */
+public class GameDelta {
+
+    private final long baseVersion;
+    private final long version;
+    private final int score;
+    private final int moves;
+    private final byte[] cells;
+
+    public GameDelta(long baseVersion, long version, int score, int moves, byte[] cells) {
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.score = score;
+        this.moves = moves;
+        this.cells = cells.clone();
+    }
+
+    /**
+     * Returns the delta from the given version to the current state
+     * of the game, or null if the game cannot describe it, in which
+     * case the full state has to be sent.
+     */
+    public static GameDelta of(Game game, long knownVersion) {
+        MoveResult lastMove = game.getLastMove();
+        if (lastMove == null || knownVersion != game.getVersion() - 1) {
+            return null;
+        }
+        return between(knownVersion, lastMove.getPreviousBoard(),
+                new GameState(null, lastMove.getBoard(), game.getScore(), game.getMoves(), game.getVersion()));
+    }
+
+    public static GameDelta between(long baseVersion, long baseBoard, GameState state) {
+        long difference = baseBoard ^ state.getBoard();
+        byte[] cells = new byte[16];
+        int count = 0;
+        for (int cell = 0; cell < 16; cell++) {
+            if (((difference >>> (4 * cell)) & 0xF) != 0) {
+                cells[count++] = (byte) (cell << 4 | (int) (state.getBoard() >>> (4 * cell)) & 0xF);
+            }
+        }
+        return new GameDelta(baseVersion, state.getVersion(), state.getScore(), state.getMoves(), Arrays.copyOf(cells, count));
+    }
+
+    /**
+     * Applies the changed cells to the packed board of the base
+     * version.
+     */
+    public long applyTo(long board) {
+        for (byte cell : cells) {
+            int shift = 4 * ((cell >>> 4) & 0xF);
+            board = (board & ~(0xFL << shift)) | (long) (cell & 0xF) << shift;
+        }
+        return board;
+    }
+
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public byte[] getCells() {
+        return cells.clone();
+    }
+}
@@ -0,0 +1,111 @@
+package spw4.game2048;
+
+import java.util.UUID;
+
+/**
+ * Renders the HTML page of a game snapshot. Kept independent of the
+ * servlet API, so pages can also be rendered outside a servlet
+ * container, e.g. by {@link StartupProbe}.
+ */
+public class GamePage {
+
+    private final Assets assets;
+
+    public GamePage(Assets assets) {
+        this.assets = assets;
+    }
+
+    public String render(GameSnapshot snapshot) {
+        UUID id = snapshot.getId();
+        StringBuffer sb = new StringBuffer();
+
+        sb.append("<!DOCTYPE html>\n");
+        sb.append("<html lang=\"en\">\n");
+        sb.append("<head>\n");
+        sb.append("    <meta charset=\"UTF-8\">\n");
+        sb.append("    <title>2048</title>\n");
+        sb.append("    <link href=\"" + assets.url("css/bootstrap.min.css") + "\" rel=\"stylesheet\"/>\n");
+        sb.append("    <link href=\"" + assets.url("icons/bootstrap-icons.css") + "\" rel=\"stylesheet\"/>\n");
+        sb.append("    <script src=\"" + assets.url("js/bootstrap.min.js") + "\"></script>\n");
+        sb.append("    <script src=\"" + assets.url("js/game2048.js") + "\" defer></script>\n");
+        sb.append("</head>\n");
+        sb.append("<body>\n");
+        sb.append("    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n");
+        sb.append("\n");
+        sb.append("    <div class=\"row\">\n");
+        sb.append("        <div class=\"col-4\"></div>\n");
+        sb.append("        <div class=\"col\">\n");
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col text-center pb-4\"><h5>Moves: <span data-moves>" + snapshot.getState().getMoves() + "</span></h5></div>\n");
+        sb.append("                <div class=\"col text-center pb-4\"><h5>Score: <span data-score>" + snapshot.getState().getScore() + "</span></h5></div>\n");
+        sb.append("            </div>\n");
+        if (snapshot.isOver() && snapshot.isWon()) {
+            sb.append("            <div class=\"row\">\n");
+            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n");
+            sb.append("            </div>\n");
+        } else if (snapshot.isOver() && !snapshot.isWon()) {
+            sb.append("            <div class=\"row\">\n");
+            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n");
+            sb.append("            </div>\n");
+        }
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col-2\"></div>\n");
+        sb.append("                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" data-direction=\"up\" href=\"Game?id=" + id + "&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n");
+        sb.append("                <div class=\"col-2\"></div>\n");
+        sb.append("            </div>\n");
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" data-direction=\"left\" href=\"Game?id=" + id + "&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n");
+        sb.append("                <div class=\"col\">\n");
+        sb.append("                    <div class=\"container text-center bg-secondary\" id=\"board\" data-id=\"" + id
+                + "\" data-version=\"" + snapshot.getVersion()
+                + "\" data-board=\"" + Long.toHexString(snapshot.getState().getBoard())
+                + "\" data-score=\"" + snapshot.getState().getScore()
+                + "\" data-moves=\"" + snapshot.getState().getMoves()
+                + "\" data-random=\"" + (snapshot.getRandomState() < 0 || snapshot.isOver() ? "" : Long.toHexString(snapshot.getRandomState()))
+                + "\">\n");
+        sb.append("                        <div class=\"row\">\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"0\">" + snapshot.getTileValue(0, 0) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"1\">" + snapshot.getTileValue(0, 1) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"2\">" + snapshot.getTileValue(0, 2) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\" data-cell=\"3\">" + snapshot.getTileValue(0, 3) + "</div>\n");
+        sb.append("                        </div>\n");
+        sb.append("                        <div class=\"row\">\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"4\">" + snapshot.getTileValue(1, 0) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"5\">" + snapshot.getTileValue(1, 1) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"6\">" + snapshot.getTileValue(1, 2) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\" data-cell=\"7\">" + snapshot.getTileValue(1, 3) + "</div>\n");
+        sb.append("                        </div>\n");
+        sb.append("                        <div class=\"row\">\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"8\">" + snapshot.getTileValue(2, 0) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"9\">" + snapshot.getTileValue(2, 1) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\" data-cell=\"10\">" + snapshot.getTileValue(2, 2) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\" data-cell=\"11\">" + snapshot.getTileValue(2, 3) + "</div>\n");
+        sb.append("                        </div>\n");
+        sb.append("                        <div class=\"row\">\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\" data-cell=\"12\">" + snapshot.getTileValue(3, 0) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\" data-cell=\"13\">" + snapshot.getTileValue(3, 1) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\" data-cell=\"14\">" + snapshot.getTileValue(3, 2) + "</div>\n");
+        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 mr-1 bg-light\" data-cell=\"15\">" + snapshot.getTileValue(3, 3) + "</div>\n");
+        sb.append("                        </div>\n");
+        sb.append("                    </div>\n");
+        sb.append("                </div>\n");
+        sb.append("                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" data-direction=\"right\" href=\"Game?id=" + id + "&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n");
+        sb.append("            </div>\n");
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col-2\"></div>\n");
+        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" data-direction=\"down\" href=\"Game?id=" + id + "&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n");
+        sb.append("                <div class=\"col-2\"></div>\n");
+        sb.append("            </div>\n");
+        sb.append("            <div class=\"row\">\n");
+        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" data-flush href=\"Game?action=new\">New Game</a></div>\n");
+        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" data-flush href=\"Game?id=" + id + "\">Refresh</a></div>\n");
+        sb.append("            </div>\n");
+        sb.append("        </div>\n");
+        sb.append("        <div class=\"col-4\"></div>\n");
+        sb.append("    </div>\n");
+        sb.append("</body>\n");
+        sb.append("</html>\n");
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package spw4.game2048;
+
+import java.util.Random;
+
+/**
+ * {@link Random} producing the same numbers as {@code java.util.Random}
+ * for the same seed, whose 48-bit state can be read and restored.
+ * This lets the web client continue a game's spawns from its
+ * current state and lets the server undo rejected moves. Unlike
+ * {@link Random}, it must not be shared between threads.
+ */
+public class GameRandom extends Random {
+
+    private final static long MULTIPLIER = 0x5DEECE66DL;
+    private final static long ADDEND = 0xBL;
+    private final static long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
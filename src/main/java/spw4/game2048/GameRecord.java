@@ -0,0 +1,70 @@
+package spw4.game2048;
+
+/**
+ * Record of a finished game as exported for analytics.
+ */
+public class GameRecord {
+
+    private final long seed;
+    private final byte[] history;
+    private final long board;
+    private final int score;
+    private final int moves;
+    private final boolean won;
+    private final boolean replayable;
+
+    public GameRecord(long seed, byte[] history, long board, int score, int moves, boolean won) {
+        this(seed, history, board, score, moves, won, true);
+    }
+
+    public GameRecord(long seed, byte[] history, long board, int score, int moves, boolean won, boolean replayable) {
+        this.seed = seed;
+        this.history = history;
+        this.board = board;
+        this.score = score;
+        this.moves = moves;
+        this.won = won;
+        this.replayable = replayable;
+    }
+
+    public static GameRecord of(Game game) {
+        return new GameRecord(game.getSeed(), game.getHistory(), game.board.pack(),
+                game.getScore(), game.getMoves(), game.isWon(), game.isReplayable());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the played moves as {@link Direction} ordinals.
+     */
+    public byte[] getHistory() {
+        return history;
+    }
+
+    public long getBoard() {
+        return board;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * Returns whether the game can be replayed from the seed and
+     * history. Games migrated between nodes only know the moves
+     * played after the migration.
+     */
+    public boolean isReplayable() {
+        return replayable;
+    }
+}
@@ -0,0 +1,232 @@
+package spw4.game2048;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams finished games into rolling, gzip compressed batch
+ * files. Records are handed over through a bounded queue and
+ * written by a background thread, so callers never block on
+ * disk; records which do not fit into the queue are dropped.
+ * <p>
+ * Every batch stores its records column by column (seeds,
+ * boards, scores, moves, results, history lengths) followed by
+ * the move histories packed with two bits per move. Files are
+ * written under a temporary name and renamed once complete.
+ * Records which cannot be replayed, because the game's history was
+ * lost, are logged and skipped.
+ */
+public class GameRecordExporter implements Closeable {
+
+    public final static int MAGIC = 0x32303438;
+    public final static byte VERSION = 1;
+    public final static String SUFFIX = ".bin.gz";
+
+    private final Path directory;
+    private final int batchSize;
+    private final int recordsPerFile;
+    private final long flushMillis;
+    private final BlockingQueue<GameRecord> queue;
+    private final Thread worker;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean closed;
+
+    private OutputStream out;
+    private Path file;
+    private int fileRecords;
+    private int fileSequence;
+
+    public GameRecordExporter(Path directory) throws IOException {
+        this(directory, 65536, 4096, 1_000_000, 1000);
+    }
+
+    public GameRecordExporter(Path directory, int queueCapacity, int batchSize, int recordsPerFile, long flushMillis) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.batchSize = batchSize;
+        this.recordsPerFile = recordsPerFile;
+        this.flushMillis = flushMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.worker = new Thread(this::run, "game-record-exporter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a record for export without blocking.
+     *
+     * @return false if the record was skipped because it cannot be
+     * replayed or dropped because the queue is full
+     */
+    public boolean offer(GameRecord record) {
+        if (!record.isReplayable()) {
+            skipped.incrementAndGet();
+            System.err.println("Skipped game record without complete history: seed " + record.getSeed()
+                    + ", score " + record.getScore() + ", moves " + record.getMoves());
+            return false;
+        }
+        if (closed || !queue.offer(record)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Writes all queued records and completes the current file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<GameRecord> batch = new ArrayList<>(batchSize);
+
+        while (!closed || !queue.isEmpty()) {
+            GameRecord record;
+            try {
+                record = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            if (record != null) {
+                batch.add(record);
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+
+            if (batch.size() >= batchSize || (record == null && !batch.isEmpty())) {
+                write(batch);
+                batch.clear();
+            }
+        }
+
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        try {
+            roll();
+        } catch (IOException e) {
+            System.err.println("Failed to complete game record file " + file + ": " + e);
+        }
+    }
+
+    private void write(List<GameRecord> batch) {
+        try {
+            if (out == null) {
+                open();
+            }
+            out.write(encode(batch).array());
+            out.flush();
+            written.addAndGet(batch.size());
+
+            fileRecords += batch.size();
+            if (fileRecords >= recordsPerFile) {
+                roll();
+            }
+        } catch (IOException e) {
+            failed.addAndGet(batch.size());
+            System.err.println("Failed to write game records to " + file + ": " + e);
+        }
+    }
+
+    static ByteBuffer encode(List<GameRecord> batch) {
+        int count = batch.size();
+        int historyBytes = 0;
+        for (GameRecord record : batch) {
+            historyBytes += packedLength(record.getHistory().length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 4 + 4 + count * (8 + 8 + 4 + 4 + 1 + 4) + historyBytes);
+        buffer.putInt(MAGIC).put(VERSION).putInt(count).putInt(historyBytes);
+        for (GameRecord record : batch) {
+            buffer.putLong(record.getSeed());
+        }
+        for (GameRecord record : batch) {
+            buffer.putLong(record.getBoard());
+        }
+        for (GameRecord record : batch) {
+            buffer.putInt(record.getScore());
+        }
+        for (GameRecord record : batch) {
+            buffer.putInt(record.getMoves());
+        }
+        for (GameRecord record : batch) {
+            buffer.put((byte) (record.isWon() ? 1 : 0));
+        }
+        for (GameRecord record : batch) {
+            buffer.putInt(record.getHistory().length);
+        }
+        for (GameRecord record : batch) {
+            byte[] history = record.getHistory();
+            for (int i = 0; i < history.length; i += 4) {
+                int packed = 0;
+                for (int j = 0; j < 4 && i + j < history.length; j++) {
+                    packed |= (history[i + j] & 0x3) << (2 * j);
+                }
+                buffer.put((byte) packed);
+            }
+        }
+        return buffer;
+    }
+
+    static int packedLength(int moves) {
+        return (moves + 3) / 4;
+    }
+
+    private void open() throws IOException {
+        file = directory.resolve(String.format("games-%d-%05d%s.tmp", System.currentTimeMillis(), fileSequence++, SUFFIX));
+        out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), 1 << 16, true);
+        fileRecords = 0;
+    }
+
+    private void roll() throws IOException {
+        if (out == null) {
+            return;
+        }
+        out.close();
+        out = null;
+
+        String name = file.getFileName().toString();
+        Files.move(file, file.resolveSibling(name.substring(0, name.length() - ".tmp".length())),
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
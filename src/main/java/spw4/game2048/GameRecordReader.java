@@ -0,0 +1,193 @@
+package spw4.game2048;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the batch files written by {@link GameRecordExporter}.
+ * Batches are read column by column into primitive arrays, so
+ * aggregations over scores, moves or results do not create an
+ * object per record.
+ */
+public class GameRecordReader implements Closeable {
+
+    private final DataInputStream in;
+
+    public GameRecordReader(Path file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 1 << 16), 1 << 16));
+    }
+
+    /**
+     * Returns the next batch of the file or null at its end.
+     */
+    public Batch next() throws IOException {
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (magic != GameRecordExporter.MAGIC) {
+            throw new IOException("Not a game record file.");
+        }
+        byte version = in.readByte();
+        if (version != GameRecordExporter.VERSION) {
+            throw new IOException("Unsupported game record version " + version + ".");
+        }
+
+        int count = in.readInt();
+        int historyBytes = in.readInt();
+        byte[] bytes = new byte[count * (8 + 8 + 4 + 4 + 1 + 4) + historyBytes];
+        in.readFully(bytes);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Batch batch = new Batch(count, historyBytes);
+        buffer.asLongBuffer().get(batch.seeds);
+        buffer.position(buffer.position() + 8 * count);
+        buffer.asLongBuffer().get(batch.boards);
+        buffer.position(buffer.position() + 8 * count);
+        buffer.asIntBuffer().get(batch.scores);
+        buffer.position(buffer.position() + 4 * count);
+        buffer.asIntBuffer().get(batch.moves);
+        buffer.position(buffer.position() + 4 * count);
+        buffer.get(batch.won);
+        buffer.asIntBuffer().get(batch.historyLengths);
+        buffer.position(buffer.position() + 4 * count);
+        buffer.get(batch.histories);
+
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            batch.historyOffsets[i] = offset;
+            offset += GameRecordExporter.packedLength(batch.historyLengths[i]);
+        }
+        return batch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads all completed record files of a directory in the
+     * order they were written.
+     */
+    public static void scan(Path directory, Consumer<Batch> consumer) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(GameRecordExporter.SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            try (GameRecordReader reader = new GameRecordReader(file)) {
+                Batch batch;
+                while ((batch = reader.next()) != null) {
+                    consumer.accept(batch);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "game-records");
+        long[] totals = new long[4];
+        int[] maxScore = new int[1];
+
+        long start = System.nanoTime();
+        scan(directory, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                totals[0]++;
+                totals[1] += batch.isWon(i) ? 1 : 0;
+                totals[2] += batch.getScore(i);
+                totals[3] += batch.getMoves(i);
+                maxScore[0] = Math.max(maxScore[0], batch.getScore(i));
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long games = Math.max(1, totals[0]);
+        System.out.println("Games:         " + totals[0]);
+        System.out.println("Win rate:      " + String.format("%.2f%%", 100.0 * totals[1] / games));
+        System.out.println("Average score: " + String.format("%.1f", totals[2] / (double) games));
+        System.out.println("Max score:     " + maxScore[0]);
+        System.out.println("Average moves: " + String.format("%.1f", totals[3] / (double) games));
+        System.out.println("Scan rate:     " + String.format("%.0f", totals[0] / seconds) + " records/s");
+    }
+
+    /**
+     * A batch of records stored as one primitive array per column.
+     */
+    public static class Batch {
+        private final long[] seeds;
+        private final long[] boards;
+        private final int[] scores;
+        private final int[] moves;
+        private final byte[] won;
+        private final int[] historyLengths;
+        private final int[] historyOffsets;
+        private final byte[] histories;
+
+        private Batch(int count, int historyBytes) {
+            seeds = new long[count];
+            boards = new long[count];
+            scores = new int[count];
+            moves = new int[count];
+            won = new byte[count];
+            historyLengths = new int[count];
+            historyOffsets = new int[count];
+            histories = new byte[historyBytes];
+        }
+
+        public int size() {
+            return seeds.length;
+        }
+
+        public long getSeed(int index) {
+            return seeds[index];
+        }
+
+        public long getBoard(int index) {
+            return boards[index];
+        }
+
+        public int getScore(int index) {
+            return scores[index];
+        }
+
+        public int getMoves(int index) {
+            return moves[index];
+        }
+
+        public boolean isWon(int index) {
+            return won[index] != 0;
+        }
+
+        public byte[] getHistory(int index) {
+            byte[] history = new byte[historyLengths[index]];
+            int offset = historyOffsets[index];
+            for (int i = 0; i < history.length; i++) {
+                history[i] = (byte) ((histories[offset + i / 4] >>> (2 * (i % 4))) & 0x3);
+            }
+            return history;
+        }
+
+        public GameRecord getRecord(int index) {
+            return new GameRecord(getSeed(index), getHistory(index), getBoard(index),
+                    getScore(index), getMoves(index), isWon(index));
+        }
+    }
+}
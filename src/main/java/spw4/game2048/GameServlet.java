@@ -6,153 +6,405 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
+import java.nio.file.Paths;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 @WebServlet("/Game")
 public class GameServlet extends HttpServlet {
-    private HashMap<UUID, Game> games;
+    public final static String CLUSTER_PARAMETER = "game2048.cluster";
+    public final static String NODE_PARAMETER = "game2048.node";
+    public final static String EXPORT_PARAMETER = "game2048.export.directory";
+    public final static String GLOBAL_RATE_PARAMETER = "game2048.admission.globalRate";
+    public final static String CLIENT_RATE_PARAMETER = "game2048.admission.clientRate";
+    public final static String NEW_GAME_RATE_PARAMETER = "game2048.admission.newGameRate";
+    public final static String TARGET_DELAY_PARAMETER = "game2048.admission.targetDelayMillis";
+    private final static int MAX_BATCH = 256;
+
+    private ShardCluster cluster;
+    private ShardNode games;
+    private GameRecordExporter exporter;
+    private GamePage page;
+    private AdmissionController admission;
 
     @Override
     public void init() throws ServletException {
         super.init();
-        games = new HashMap<>();
+
+        page = new GamePage(Assets.of(getServletContext()));
+
+        try {
+            admission = new AdmissionController(
+                    parameter(GLOBAL_RATE_PARAMETER, AdmissionController.DEFAULT_GLOBAL_RATE),
+                    parameter(CLIENT_RATE_PARAMETER, AdmissionController.DEFAULT_CLIENT_RATE),
+                    parameter(NEW_GAME_RATE_PARAMETER, AdmissionController.DEFAULT_NEW_GAME_RATE),
+                    (long) parameter(TARGET_DELAY_PARAMETER, AdmissionController.DEFAULT_TARGET_DELAY_MILLIS),
+                    System::nanoTime);
+        } catch (IllegalArgumentException e) {
+            throw new ServletException(e);
+        }
+
+        String exportDirectory = getServletContext().getInitParameter(EXPORT_PARAMETER);
+        if (exportDirectory != null && !exportDirectory.isBlank()) {
+            try {
+                exporter = new GameRecordExporter(Paths.get(exportDirectory));
+            } catch (IOException e) {
+                throw new ServletException(e);
+            }
+        }
+
+        String configuration = getServletContext().getInitParameter(CLUSTER_PARAMETER);
+        if (configuration == null || configuration.isBlank()) {
+            cluster = new ShardCluster();
+            games = new ShardNode("local", "Game");
+            cluster.join(games);
+            return;
+        }
+
+        try {
+            cluster = ShardCluster.parse(configuration);
+        } catch (IllegalArgumentException e) {
+            throw new ServletException(e);
+        }
+        games = cluster.node(getServletContext().getInitParameter(NODE_PARAMETER));
+        if (games == null) {
+            throw new ServletException("Parameter " + NODE_PARAMETER + " does not name a node of the cluster.");
+        }
+    }
+
+    private double parameter(String name, double defaultValue) {
+        String value = getServletContext().getInitParameter(name);
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value);
+    }
+
+    @Override
+    public void destroy() {
+        if (exporter != null) {
+            exporter.close();
+        }
+        super.destroy();
     }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         response.setContentType("text/html");
-        PrintWriter writer = response.getWriter();
+        long queueingDelay = queueingDelay(request);
+        boolean admitted = false;
 
         try {
             String action = request.getParameter("action");
             if (action == null) action = "";
 
+            if ("stats".equals(action)) {
+                response.setContentType("text/plain");
+                response.getWriter().print(stats());
+                return;
+            }
+
+            long retryAfter = admission.admit(request.getRemoteAddr(), "new".equals(action));
+            if (retryAfter > 0) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", String.valueOf(retryAfter));
+                response.setContentType("text/plain");
+                response.getWriter().println("server busy, retry after " + retryAfter + "s");
+                return;
+            }
+            admitted = true;
+
             if ("new".equals(action)) {
-                UUID id = UUID.randomUUID();
-                Game newGame = new Game();
+                UUID id = cluster.newIdFor(games);
+                Game newGame = new Game(ThreadLocalRandom.current().nextLong());
                 newGame.initialize();
-                games.put(id, newGame);
-                writer.println(game2Html(id, newGame));
+                render(request, response, games.put(id, newGame).snapshot());
                 return;
             }
 
             String idString = request.getParameter("id");
             if (idString != null) {
                 UUID id = UUID.fromString(idString);
-                Game game = games.get(id);
-
-                if (!game.isOver()) {
-                    switch (action) {
-                        case "up":
-                            game.move(Direction.up);
-                            break;
-                        case "down":
-                            game.move(Direction.down);
-                            break;
-                        case "left":
-                            game.move(Direction.left);
-                            break;
-                        case "right":
-                            game.move(Direction.right);
-                            break;
-                    }
+                ShardNode owner = cluster.nodeFor(id);
+                if (owner != games) {
+                    redirectToOwner(request, response, id);
+                    return;
+                }
+                GameSession session = games.get(id);
+                if (session == null) {
+                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    response.setContentType("text/plain");
+                    response.getWriter().println("unknown game " + id);
+                    return;
+                }
+                if (session.isClosed()) {
+                    redirectToOwner(request, response, id);
+                    return;
+                }
+                Consumer<Game> onGameOver = exporter == null ? null : finished -> exporter.offer(GameRecord.of(finished));
+
+                if ("batch".equals(action)) {
+                    batch(request, response, session, onGameOver);
+                    return;
+                }
+
+                GameSnapshot game;
+                boolean readOnly = false;
+                switch (action) {
+                    case "up":
+                        game = session.move(Direction.up, onGameOver);
+                        break;
+                    case "down":
+                        game = session.move(Direction.down, onGameOver);
+                        break;
+                    case "left":
+                        game = session.move(Direction.left, onGameOver);
+                        break;
+                    case "right":
+                        game = session.move(Direction.right, onGameOver);
+                        break;
+                    default:
+                        game = session.snapshot();
+                        readOnly = true;
+                        break;
+                }
+                if (game == null) {
+                    redirectToOwner(request, response, id);
+                    return;
                 }
 
-                writer.println(game2Html(id, games.get(id)));
+                boolean binary = acceptsBinary(request);
+                long knownVersion = knownVersion(request);
+                GameDelta delta = binary && knownVersion >= 0 ? game.deltaSince(knownVersion) : null;
+
+                String etag = etag(game, delta != null ? "-delta" : binary ? "-bin" : "-html");
+                response.setHeader("ETag", etag);
+                response.setHeader("Cache-Control", "private, no-cache");
+                if (readOnly && (matches(request.getHeader("If-None-Match"), etag)
+                        || (binary && knownVersion == game.getVersion()))) {
+                    response.setHeader("Vary", "Accept");
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+
+                if (delta != null) {
+                    byte[] encoded = GameCodec.encode(delta);
+                    response.setHeader("Vary", "Accept");
+                    response.setContentType(GameCodec.DELTA_CONTENT_TYPE);
+                    response.setContentLength(encoded.length);
+                    response.getOutputStream().write(encoded);
+                    return;
+                }
+
+                render(request, response, game);
                 return;
             }
 
-            writer.println("invalid request");
+            response.getWriter().println("invalid request");
         }
         catch (Throwable t) {
-            writer.println(t.toString());
+            response.getWriter().println(t.toString());
+        }
+        finally {
+            if (admitted && queueingDelay >= 0) {
+                admission.observeDelay(queueingDelay);
+            }
         }
     }
 
-    private String game2Html(UUID id, Game game) {
-        StringBuffer sb = new StringBuffer();
-
-        sb.append("<!DOCTYPE html>\n");
-        sb.append("<html lang=\"en\">\n");
-        sb.append("<head>\n");
-        sb.append("    <meta charset=\"UTF-8\">\n");
-        sb.append("    <title>2048</title>\n");
-        sb.append("    <link href=\"css/bootstrap.min.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <link href=\"icons/bootstrap-icons.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <script src=\"js/bootstrap.min.js\"></script>\n");
-        sb.append("</head>\n");
-        sb.append("<body>\n");
-        sb.append("    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n");
-        sb.append("\n");
-        sb.append("    <div class=\"row\">\n");
-        sb.append("        <div class=\"col-4\"></div>\n");
-        sb.append("        <div class=\"col\">\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col text-center pb-4\"><h5>Moves: " + game.getMoves() + "</h5></div>\n");
-        sb.append("                <div class=\"col text-center pb-4\"><h5>Score: " + game.getScore() + "</h5></div>\n");
-        sb.append("            </div>\n");
-        if (game.isOver() && game.isWon()) {
-            sb.append("            <div class=\"row\">\n");
-            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n");
-            sb.append("            </div>\n");
-        } else if (game.isOver() && !game.isWon()) {
-            sb.append("            <div class=\"row\">\n");
-            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n");
-            sb.append("            </div>\n");
-        }
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n");
-        sb.append("                <div class=\"col\">\n");
-        sb.append("                    <div class=\"container text-center bg-secondary\">\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(0, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(0, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(0, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.board.getTileValue(0, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(1, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(1, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(1, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.board.getTileValue(1, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(2, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(2, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.board.getTileValue(2, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.board.getTileValue(2, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.board.getTileValue(3, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.board.getTileValue(3, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.board.getTileValue(3, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 mr-1 bg-light\">" + game.board.getTileValue(3, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                    </div>\n");
-        sb.append("                </div>\n");
-        sb.append("                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"Game?action=new\">New Game</a></div>\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"Game?id=" + id + "\">Refresh</a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("        </div>\n");
-        sb.append("        <div class=\"col-4\"></div>\n");
-        sb.append("    </div>\n");
-        sb.append("</body>\n");
-        sb.append("</html>\n");
+    /**
+     * Returns how long the request waited before it was handled,
+     * if a front-end proxy recorded its arrival in the
+     * X-Request-Start header ({@code t=} followed by seconds,
+     * milliseconds or microseconds since the epoch), otherwise -1.
+     */
+    private long queueingDelay(HttpServletRequest request) {
+        String header = request.getHeader("X-Request-Start");
+        if (header == null) {
+            return -1;
+        }
+
+        try {
+            String value = header.startsWith("t=") ? header.substring(2) : header;
+            long nowMicros = System.currentTimeMillis() * 1000;
+            long startMicros;
+            if (value.contains(".")) {
+                startMicros = (long) (Double.parseDouble(value) * 1e6);
+            } else if (value.length() >= 16) {
+                startMicros = Long.parseLong(value);
+            } else {
+                startMicros = Long.parseLong(value) * 1000;
+            }
+            return Math.max(0, nowMicros - startMicros) * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void render(HttpServletRequest request, HttpServletResponse response, GameSnapshot game) throws IOException {
+        response.setHeader("Vary", "Accept");
+
+        if (acceptsBinary(request)) {
+            byte[] state = GameCodec.encode(game.getState());
+            response.setContentType(GameCodec.CONTENT_TYPE);
+            response.setContentLength(state.length);
+            response.getOutputStream().write(state);
+            return;
+        }
+
+        response.getWriter().println(page.render(game));
+    }
+
+    /**
+     * Verifies and keeps the moves which the web client played
+     * locally (parameters {@code since}, {@code moves} as letters
+     * {@code u}, {@code d}, {@code l}, {@code r}, and the resulting
+     * {@code board} in hex and {@code score}). The reply is the binary
+     * state, with 409 Conflict if the batch was rejected, so the
+     * client continues from the authoritative state.
+     */
+    private void batch(HttpServletRequest request, HttpServletResponse response, GameSession session,
+                       Consumer<Game> onGameOver) throws IOException {
+        byte[] directions;
+        long board;
+        int score;
+        try {
+            directions = directions(request.getParameter("moves"));
+            board = Long.parseUnsignedLong(request.getParameter("board"), 16);
+            score = Integer.parseInt(request.getParameter("score"));
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("text/plain");
+            response.getWriter().println("invalid batch: " + e.getMessage());
+            return;
+        }
+
+        GameSnapshot game = session.playBatch(knownVersion(request), directions, board, score, onGameOver);
+        if (game == null && session.isClosed()) {
+            redirectToOwner(request, response, session.getId());
+            return;
+        }
+        if (game == null) {
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            game = session.snapshot();
+        }
+
+        byte[] state = GameCodec.encode(game.getState());
+        response.setHeader("Cache-Control", "no-store");
+        response.setContentType(GameCodec.CONTENT_TYPE);
+        response.setContentLength(state.length);
+        response.getOutputStream().write(state);
+    }
+
+    /**
+     * Redirects to the node owning the game, which changes when nodes
+     * join or leave the cluster. While the game is still routed here
+     * although its session is closed, it is being migrated, and the
+     * client is asked to retry.
+     */
+    private void redirectToOwner(HttpServletRequest request, HttpServletResponse response, UUID id) throws IOException {
+        ShardNode owner = cluster.nodeFor(id);
+        if (owner == games) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain");
+            response.getWriter().println("game " + id + " is being migrated, retry after 1s");
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
+        response.setHeader("Location", owner.getUrl() + "?" + request.getQueryString());
+    }
+
+    private static byte[] directions(String moves) {
+        if (moves == null || moves.length() > MAX_BATCH) {
+            throw new IllegalArgumentException("between 0 and " + MAX_BATCH + " moves are required");
+        }
+        byte[] directions = new byte[moves.length()];
+        for (int i = 0; i < directions.length; i++) {
+            switch (moves.charAt(i)) {
+                case 'u':
+                    directions[i] = (byte) Direction.up.ordinal();
+                    break;
+                case 'd':
+                    directions[i] = (byte) Direction.down.ordinal();
+                    break;
+                case 'l':
+                    directions[i] = (byte) Direction.left.ordinal();
+                    break;
+                case 'r':
+                    directions[i] = (byte) Direction.right.ordinal();
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown move " + moves.charAt(i));
+            }
+        }
+        return directions;
+    }
+
+    private String etag(GameSnapshot game, String representation) {
+        return "\"" + game.getVersion() + representation + "\"";
+    }
+
+    /**
+     * Returns the state version the client already holds, given by
+     * the {@code since} parameter, or -1 if it is missing or invalid.
+     */
+    private long knownVersion(HttpServletRequest request) {
+        String since = request.getParameter("since");
+        if (since == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean acceptsBinary(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return "binary".equals(request.getParameter("format"))
+                || (accept != null && accept.contains(GameCodec.CONTENT_TYPE));
+    }
+
+    private String stats() {
+        Runtime runtime = Runtime.getRuntime();
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("node=").append(games.getId()).append("\n");
+        sb.append("games=").append(games.size()).append("\n");
+        if (exporter != null) {
+            sb.append("exportedGames=").append(exporter.getWritten()).append("\n");
+            sb.append("droppedGames=").append(exporter.getDropped()).append("\n");
+            sb.append("skippedGames=").append(exporter.getSkipped()).append("\n");
+        }
+        sb.append("admission.globalRate=").append(admission.getGlobalRate()).append("\n");
+        sb.append("admission.clientRate=").append(admission.getClientRate()).append("\n");
+        sb.append("admission.newGameRate=").append(admission.getNewGameRate()).append("\n");
+        sb.append("admission.targetDelayMillis=").append(admission.getTargetDelayMillis()).append("\n");
+        sb.append("admission.delayMillis=").append(admission.getDelayNanos() / 1e6).append("\n");
+        sb.append("admission.admittedMoves=").append(admission.getAdmittedMoves()).append("\n");
+        sb.append("admission.admittedNewGames=").append(admission.getAdmittedNewGames()).append("\n");
+        sb.append("admission.rejectedMoves=").append(admission.getRejectedMoves()).append("\n");
+        sb.append("admission.rejectedNewGames=").append(admission.getRejectedNewGames()).append("\n");
+        sb.append("admission.rejectedOverload=").append(admission.getRejectedOverload()).append("\n");
+        sb.append("heapUsed=").append(runtime.totalMemory() - runtime.freeMemory()).append("\n");
+        sb.append("heapCommitted=").append(runtime.totalMemory()).append("\n");
+        sb.append("heapMax=").append(runtime.maxMemory()).append("\n");
 
         return sb.toString();
     }
@@ -0,0 +1,134 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A game shared by concurrent requests. Moves on the same game are
+ * serialized, and every change publishes an immutable
+ * {@link GameSnapshot} through a volatile field. Readers only use
+ * the latest snapshot, so they never wait for a move and never see
+ * a partly moved board.
+ */
+public class GameSession {
+
+    private final UUID id;
+    private final Game game;
+    private volatile GameSnapshot snapshot;
+    private volatile boolean closed;
+
+    public GameSession(UUID id, Game game) {
+        this.id = id;
+        this.game = game;
+        this.snapshot = GameSnapshot.of(id, game);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public GameSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Closes the session because its game moves to another node and
+     * returns the game's state including its move history. Moves
+     * arriving afterwards are refused, so no move is acknowledged
+     * which the new owner does not receive.
+     */
+    public synchronized GameState close() {
+        closed = true;
+        return GameState.withHistory(id, game);
+    }
+
+    /**
+     * Returns whether the session is closed, without waiting for a
+     * move in progress.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public GameSnapshot move(Direction direction) {
+        return move(direction, null);
+    }
+
+    /**
+     * Moves unless the game is over and returns the resulting
+     * snapshot, or null if the session is closed. If the move ends
+     * the game, the finished game is passed to {@code onGameOver},
+     * which must not keep it.
+     */
+    public synchronized GameSnapshot move(Direction direction, Consumer<Game> onGameOver) {
+        if (closed) {
+            return null;
+        }
+        if (game.isOver()) {
+            return snapshot;
+        }
+
+        if (game.moveAndReport(direction).isMoved()) {
+            GameSnapshot published = GameSnapshot.of(id, game);
+            snapshot = published;
+            if (published.isOver() && onGameOver != null) {
+                onGameOver.accept(game);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Plays a batch of moves made by a client holding the given
+     * version, see {@link Game#playBatch(byte[], long, int)}. Moves
+     * at the start of the batch which the game already played, because
+     * the client resent them, are skipped, so a batch may be sent
+     * again if its reply was lost.
+     *
+     * @return the resulting snapshot, or null if the batch was
+     * rejected because the session is closed, the game has moved on
+     * or the client's moves diverge from the server's replay
+     */
+    public synchronized GameSnapshot playBatch(long knownVersion, byte[] directions, long board, int score,
+                                               Consumer<Game> onGameOver) {
+        long played = game.getVersion() - knownVersion;
+        if (closed || played < 0 || played > directions.length || !playedLast(directions, (int) played)) {
+            return null;
+        }
+
+        byte[] remaining = Arrays.copyOfRange(directions, (int) played, directions.length);
+        if (!game.playBatch(remaining, board, score)) {
+            return null;
+        }
+
+        if (remaining.length > 0) {
+            GameSnapshot published = GameSnapshot.of(id, game);
+            snapshot = published;
+            if (published.isOver() && onGameOver != null) {
+                onGameOver.accept(game);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns whether the last {@code count} moves of the game are the
+     * first {@code count} moves of the batch.
+     */
+    private boolean playedLast(byte[] directions, int count) {
+        if (count == 0) {
+            return true;
+        }
+        byte[] history = game.getHistory();
+        if (count > history.length) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (history[history.length - count + i] != directions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+package spw4.game2048;
+
+import java.util.UUID;
+
+/**
+ * Immutable view of a game at one state version, published by a
+ * {@link GameSession} after every change. Besides the state it
+ * holds whether the game is over, the delta from the previous
+ * version, if that change was a single move, and the state of the
+ * random generator, from which the web client predicts spawns.
+ */
+public class GameSnapshot {
+
+    private final GameState state;
+    private final GameDelta delta;
+    private final boolean over;
+    private final boolean won;
+
+    public GameSnapshot(GameState state, GameDelta delta, boolean over, boolean won) {
+        this.state = state;
+        this.delta = delta;
+        this.over = over;
+        this.won = won;
+    }
+
+    public static GameSnapshot of(UUID id, Game game) {
+        return new GameSnapshot(GameState.of(id, game), GameDelta.of(game, game.getVersion() - 1),
+                game.isOver(), game.isWon());
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    public UUID getId() {
+        return state.getId();
+    }
+
+    public long getVersion() {
+        return state.getVersion();
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * Returns the state of the game's random generator, or -1 if it
+     * is not known.
+     */
+    public long getRandomState() {
+        return state.getRandomState();
+    }
+
+    public int getTileValue(int row, int column) {
+        int exponent = (int) (state.getBoard() >>> (4 * (row * 4 + column))) & 0xF;
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    /**
+     * Returns the delta for a client holding the given version, or
+     * null if the full state has to be sent.
+     */
+    public GameDelta deltaSince(long knownVersion) {
+        return delta != null && delta.getBaseVersion() == knownVersion ? delta : null;
+    }
+}
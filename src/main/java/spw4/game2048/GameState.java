@@ -0,0 +1,103 @@
+package spw4.game2048;
+
+import java.util.UUID;
+
+/**
+ * Immutable, packed state of a game which can be transferred
+ * between nodes and restored into a playable game. States sent to
+ * clients leave out the move history, states migrated between
+ * nodes carry it.
+ */
+public class GameState {
+
+    private final UUID id;
+    private final long board;
+    private final int score;
+    private final int moves;
+    private final long version;
+    private final long seed;
+    private final long randomState;
+    private final byte[] history;
+
+    public GameState(UUID id, long board, int score, int moves) {
+        this(id, board, score, moves, moves);
+    }
+
+    public GameState(UUID id, long board, int score, int moves, long version) {
+        this(id, board, score, moves, version, Game.DEFAULT_SEED, -1);
+    }
+
+    public GameState(UUID id, long board, int score, int moves, long version, long seed, long randomState) {
+        this(id, board, score, moves, version, seed, randomState, null);
+    }
+
+    public GameState(UUID id, long board, int score, int moves, long version, long seed, long randomState,
+                     byte[] history) {
+        this.id = id;
+        this.board = board;
+        this.score = score;
+        this.moves = moves;
+        this.version = version;
+        this.seed = seed;
+        this.randomState = randomState;
+        this.history = history == null ? null : history.clone();
+    }
+
+    public static GameState of(UUID id, Game game) {
+        return new GameState(id, game.board.pack(), game.getScore(), game.getMoves(), game.getVersion(),
+                game.getSeed(), game.getRandomState());
+    }
+
+    /**
+     * Returns the state of the game including its move history, or
+     * without it if the game does not know all its moves.
+     */
+    public static GameState withHistory(UUID id, Game game) {
+        return new GameState(id, game.board.pack(), game.getScore(), game.getMoves(), game.getVersion(),
+                game.getSeed(), game.getRandomState(), game.isReplayable() ? game.getHistory() : null);
+    }
+
+    public Game toGame() {
+        return Game.restore(board, score, moves, version, seed, randomState, history);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public long getBoard() {
+        return board;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the state of the random generator spawning new tiles,
+     * or -1 if it is unknown.
+     */
+    public long getRandomState() {
+        return randomState;
+    }
+
+    /**
+     * Returns the directions of all moves as {@link Direction}
+     * ordinals, or null if the state does not carry them.
+     */
+    public byte[] getHistory() {
+        return history == null ? null : history.clone();
+    }
+}
@@ -0,0 +1,317 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test tool for the game servlet. Simulates a number of
+ * players, each starting a new game and then sending random
+ * moves until the game is over, and periodically reports
+ * throughput, latency percentiles, error rate and heap usage.
+ */
+public class LoadGenerator {
+    private final static String[] ACTIONS = {"up", "down", "left", "right"};
+    private final static Pattern ID_PATTERN = Pattern.compile("Game\\?id=([0-9a-f\\-]{36})");
+    private final static Pattern HEAP_PATTERN = Pattern.compile("heapUsed=(\\d+)");
+    private final static Pattern GAMES_PATTERN = Pattern.compile("games=(\\d+)");
+
+    private final String url;
+    private final int players;
+    private final HttpClient client;
+    private final Histogram latencies = new Histogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private volatile boolean running = true;
+
+    public LoadGenerator(String url, int players) {
+        this.url = url;
+        this.players = players;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080/game2048/Game";
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int duration = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int interval = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        System.out.println("Load test: " + players + " players against " + url + " for " + duration + "s");
+        new LoadGenerator(url, players).run(duration, interval);
+    }
+
+    public void run(int durationSeconds, int intervalSeconds) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(players);
+        for (int i = 0; i < players; i++) {
+            long seed = i;
+            executor.execute(() -> play(new Random(seed)));
+        }
+
+        System.out.println("time[s]  req/s     p50[ms]  p90[ms]  p99[ms]  max[ms]  errors  shed    games  server-heap[MB]  client-heap[MB]");
+
+        long start = System.nanoTime();
+        long lastRequests = 0;
+        long lastErrors = 0;
+        long lastShed = 0;
+        long lastTime = start;
+        long elapsed = 0;
+        Histogram total = new Histogram();
+
+        while (elapsed < durationSeconds) {
+            Thread.sleep(Math.min(intervalSeconds, durationSeconds - elapsed) * 1000L);
+            long now = System.nanoTime();
+            double intervalLength = (now - lastTime) / 1e9;
+            lastTime = now;
+            elapsed = TimeUnit.NANOSECONDS.toSeconds(now - start);
+
+            Histogram interval = latencies.drain();
+            total.add(interval);
+            long currentRequests = requests.get();
+            long currentErrors = errors.get();
+            long intervalRequests = currentRequests - lastRequests;
+            long intervalErrors = currentErrors - lastErrors;
+            long currentShed = shed.get();
+            long intervalShed = currentShed - lastShed;
+            lastRequests = currentRequests;
+            lastErrors = currentErrors;
+            lastShed = currentShed;
+
+            String stats = fetchStats();
+            System.out.println(String.format("%7d  %8.1f  %7.2f  %7.2f  %7.2f  %7.2f  %5.2f%%  %5.2f%%  %5s  %15s  %15d",
+                    elapsed,
+                    intervalRequests / intervalLength,
+                    interval.percentile(50) / 1000.0,
+                    interval.percentile(90) / 1000.0,
+                    interval.percentile(99) / 1000.0,
+                    interval.max() / 1000.0,
+                    intervalRequests == 0 ? 0.0 : 100.0 * intervalErrors / intervalRequests,
+                    intervalRequests == 0 ? 0.0 : 100.0 * intervalShed / intervalRequests,
+                    match(GAMES_PATTERN, stats, "?"),
+                    megabytes(match(HEAP_PATTERN, stats, null)),
+                    (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20));
+        }
+
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        System.out.println();
+        System.out.println("Requests:   " + requests.get());
+        System.out.println("Throughput: " + String.format("%.1f", requests.get() / (double) seconds) + " req/s");
+        System.out.println("Latency:    p50=" + total.percentile(50) / 1000.0 + "ms"
+                + " p90=" + total.percentile(90) / 1000.0 + "ms"
+                + " p99=" + total.percentile(99) / 1000.0 + "ms"
+                + " p99.9=" + total.percentile(99.9) / 1000.0 + "ms"
+                + " max=" + total.max() / 1000.0 + "ms");
+        System.out.println("Shed (503): " + shed.get() + String.format(" (%.2f%%)",
+                requests.get() == 0 ? 0.0 : 100.0 * shed.get() / requests.get()));
+        System.out.println("Errors:     " + errors.get() + String.format(" (%.2f%%)",
+                requests.get() == 0 ? 0.0 : 100.0 * errors.get() / requests.get()));
+    }
+
+    private void play(Random random) {
+        while (running) {
+            String page = send(url + "?action=new");
+            String id = page == null ? null : match(ID_PATTERN, page, null);
+            if (id == null) {
+                continue;
+            }
+
+            while (running) {
+                page = send(url + "?id=" + id + "&action=" + ACTIONS[random.nextInt(ACTIONS.length)]);
+                if (page == null || page.contains("YOU WIN") || page.contains("YOU LOSE")) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a request and returns the page, or null on an error.
+     * Requests shed with 503 are repeated after their Retry-After
+     * delay, so a player keeps its game while the server is busy.
+     */
+    private String send(String uri) {
+        String page = null;
+        long retryAfter = 0;
+        while (retryAfter >= 0 && running) {
+            if (retryAfter > 0) {
+                try {
+                    Thread.sleep(retryAfter);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                    return null;
+                }
+            }
+            retryAfter = -1;
+            HttpResponse<String> response = sendOnce(uri);
+            if (response != null && response.statusCode() == 503) {
+                retryAfter = retryAfterMillis(response);
+            } else if (response != null) {
+                page = response.body();
+            }
+        }
+        return page;
+    }
+
+    private HttpResponse<String> sendOnce(String uri) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies.record((System.nanoTime() - start) / 1000);
+            requests.incrementAndGet();
+            if (response.statusCode() == 503) {
+                shed.incrementAndGet();
+                return response;
+            }
+            if (response.statusCode() != 200) {
+                errors.incrementAndGet();
+                return null;
+            }
+            return response;
+        } catch (IOException e) {
+            latencies.record((System.nanoTime() - start) / 1000);
+            requests.incrementAndGet();
+            errors.incrementAndGet();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return null;
+        }
+    }
+
+    private static long retryAfterMillis(HttpResponse<?> response) {
+        try {
+            long seconds = Long.parseLong(response.headers().firstValue("Retry-After").orElse("1").trim());
+            return Math.max(1, Math.min(seconds, 60)) * 1000;
+        } catch (NumberFormatException e) {
+            return 1000;
+        }
+    }
+
+    private String fetchStats() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + "?action=stats"))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        } catch (IOException e) {
+            return "";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+
+    private static String match(Pattern pattern, String text, String fallback) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(1) : fallback;
+    }
+
+    private static String megabytes(String bytes) {
+        return bytes == null ? "?" : String.valueOf(Long.parseLong(bytes) >> 20);
+    }
+
+    /**
+     * Lock-free latency histogram in microseconds. Values are
+     * bucketed by their highest set bit with 16 linear sub-buckets
+     * each, which keeps the relative error of percentiles below 7%.
+     */
+    public static class Histogram {
+        private final static int SUB_BUCKETS = 16;
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long micros) {
+            long value = Math.max(0, micros);
+            counts.incrementAndGet(index(value));
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        public long percentile(double percentile) {
+            long total = count();
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= Math.max(1, rank)) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        public long count() {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                total += counts.get(i);
+            }
+            return total;
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        Histogram drain() {
+            Histogram copy = new Histogram();
+            for (int i = 0; i < counts.length(); i++) {
+                copy.counts.set(i, counts.getAndSet(i, 0));
+            }
+            copy.max.set(max.getAndSet(0));
+            return copy;
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.addAndGet(i, other.counts.get(i));
+            }
+            max.accumulateAndGet(other.max.get(), Math::max);
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+            return (exponent - 3) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + 3;
+            long subBucket = index % SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1) << (exponent - 4)) - 1;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package spw4.game2048;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes what a move did to the board: which tiles slid to
+ * which position and whether they merged there, which tile was
+ * spawned afterwards and how many points were gained. Tiles which
+ * neither moved nor merged are not listed; both tiles of a merge
+ * are, even the one staying in place, whose slide starts where it
+ * ends.
+ */
+public class MoveResult {
+
+    private final Direction direction;
+    private final boolean moved;
+    private final long previousBoard;
+    private final long board;
+    private final int points;
+    private final List<Slide> slides;
+    private final Position spawned;
+    private final int spawnedValue;
+
+    public MoveResult(Direction direction, boolean moved, long previousBoard, long board, int points,
+                      List<Slide> slides, Position spawned, int spawnedValue) {
+        this.direction = direction;
+        this.moved = moved;
+        this.previousBoard = previousBoard;
+        this.board = board;
+        this.points = points;
+        this.slides = Collections.unmodifiableList(slides);
+        this.spawned = spawned;
+        this.spawnedValue = spawnedValue;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public boolean isMoved() {
+        return moved;
+    }
+
+    /**
+     * Returns the packed board before the move.
+     */
+    public long getPreviousBoard() {
+        return previousBoard;
+    }
+
+    /**
+     * Returns the packed board after the move, including the
+     * spawned tile.
+     */
+    public long getBoard() {
+        return board;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public List<Slide> getSlides() {
+        return slides;
+    }
+
+    /**
+     * Returns the position of the spawned tile, or null if no
+     * tile was spawned.
+     */
+    public Position getSpawned() {
+        return spawned;
+    }
+
+    public int getSpawnedValue() {
+        return spawnedValue;
+    }
+
+    /**
+     * Returns the positions whose value differs after the move.
+     */
+    public List<Position> getChangedPositions() {
+        List<Position> changed = new ArrayList<>();
+        long difference = previousBoard ^ board;
+        for (int cell = 0; cell < 16; cell++) {
+            if (((difference >>> (4 * cell)) & 0xF) != 0) {
+                changed.add(new Position(cell / 4, cell % 4));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * A tile which slid from one position to another, merging
+     * with another tile there if {@code merged} is set. Both
+     * merged tiles are listed, the value is the one before the
+     * merge.
+     */
+    public static class Slide {
+        private final Position from;
+        private final Position to;
+        private final int value;
+        private final boolean merged;
+
+        public Slide(Position from, Position to, int value, boolean merged) {
+            this.from = from;
+            this.to = to;
+            this.value = value;
+            this.merged = merged;
+        }
+
+        public Position getFrom() {
+            return from;
+        }
+
+        public Position getTo() {
+            return to;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public boolean isMerged() {
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * N-tuple network estimating the value of packed boards. Each
+ * tuple is a set of cells whose tile exponents index a table of
+ * weights; every tuple is applied to all eight symmetries of the
+ * board and the value is the sum of all looked up weights.
+ * <p>
+ * Weights are held in one flat float array while training, so
+ * several threads can update them without locking. A saved
+ * network can be memory-mapped for inference, which makes
+ * loading independent of its size.
+ */
+public class NTupleNetwork {
+
+    private final static int MAGIC = 0x4E544E31;
+    private final static int SYMMETRIES = 8;
+
+    private final int[][] tuples;
+    private final int[][][] shifts;
+    private final int[] offsets;
+    private final int size;
+    private final float[] weights;
+    private final FloatBuffer mapped;
+
+    public NTupleNetwork(int[][] tuples) {
+        this(tuples, null);
+    }
+
+    private NTupleNetwork(int[][] tuples, FloatBuffer mapped) {
+        this.tuples = tuples;
+        this.shifts = new int[tuples.length][SYMMETRIES][];
+        this.offsets = new int[tuples.length];
+
+        int total = 0;
+        for (int t = 0; t < tuples.length; t++) {
+            offsets[t] = total;
+            total += 1 << (4 * tuples[t].length);
+            for (int symmetry = 0; symmetry < SYMMETRIES; symmetry++) {
+                shifts[t][symmetry] = new int[tuples[t].length];
+                for (int i = 0; i < tuples[t].length; i++) {
+                    shifts[t][symmetry][i] = 4 * transform(tuples[t][i], symmetry);
+                }
+            }
+        }
+        this.size = total;
+        this.mapped = mapped;
+        this.weights = mapped == null ? new float[total] : null;
+    }
+
+    /**
+     * Five 4-tuples (two rows and three squares) with 320K weights,
+     * small enough to train in a few minutes.
+     */
+    public static int[][] smallTuples() {
+        return new int[][]{
+                {0, 1, 2, 3}, {4, 5, 6, 7},
+                {0, 1, 4, 5}, {1, 2, 5, 6}, {5, 6, 9, 10}
+        };
+    }
+
+    /**
+     * The four 6-tuples commonly used for 2048 with 67M weights
+     * (268 MB), which reach higher win rates but need a larger heap.
+     */
+    public static int[][] largeTuples() {
+        return new int[][]{
+                {0, 1, 2, 3, 4, 5}, {4, 5, 6, 7, 8, 9},
+                {0, 1, 2, 4, 5, 6}, {4, 5, 6, 8, 9, 10}
+        };
+    }
+
+    public double value(long board) {
+        double value = 0;
+        if (weights != null) {
+            for (int t = 0; t < tuples.length; t++) {
+                for (int symmetry = 0; symmetry < SYMMETRIES; symmetry++) {
+                    value += weights[offsets[t] + index(board, shifts[t][symmetry])];
+                }
+            }
+        } else {
+            for (int t = 0; t < tuples.length; t++) {
+                for (int symmetry = 0; symmetry < SYMMETRIES; symmetry++) {
+                    value += mapped.get(offsets[t] + index(board, shifts[t][symmetry]));
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Adds the given delta, spread evenly, to all weights looked up
+     * for the board. Updates are not synchronized; concurrent
+     * updates of the same weight may occasionally get lost, which
+     * does not hurt learning (Hogwild).
+     */
+    public void update(long board, double delta) {
+        if (weights == null) {
+            throw new IllegalStateException("Memory-mapped networks are read-only.");
+        }
+        float share = (float) (delta / (tuples.length * SYMMETRIES));
+        for (int t = 0; t < tuples.length; t++) {
+            for (int symmetry = 0; symmetry < SYMMETRIES; symmetry++) {
+                weights[offsets[t] + index(board, shifts[t][symmetry])] += share;
+            }
+        }
+    }
+
+    /**
+     * Returns the move maximizing the points it gains plus the
+     * value of the resulting board, or null if no move changes
+     * the board.
+     */
+    public Direction bestMove(long board) {
+        Direction best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Direction direction : Direction.values()) {
+            long after = PackedBoard.move(board, direction);
+            if (after == board) {
+                continue;
+            }
+            double value = PackedBoard.score(board, direction) + value(after);
+            if (value > bestValue) {
+                bestValue = value;
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void save(Path file) throws IOException {
+        if (weights == null) {
+            throw new IllegalStateException("Memory-mapped networks are already saved.");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            int headerInts = 2;
+            for (int[] tuple : tuples) {
+                headerInts += 1 + tuple.length;
+            }
+            ByteBuffer header = ByteBuffer.allocate(4 * headerInts).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(tuples.length);
+            for (int[] tuple : tuples) {
+                header.putInt(tuple.length);
+                for (int cell : tuple) {
+                    header.putInt(cell);
+                }
+            }
+            write(channel, header.flip());
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            FloatBuffer floats = chunk.asFloatBuffer();
+            for (int i = 0; i < weights.length; i += floats.capacity()) {
+                int length = Math.min(floats.capacity(), weights.length - i);
+                floats.clear();
+                floats.put(weights, i, length);
+                chunk.clear().limit(4 * length);
+                write(channel, chunk);
+            }
+        }
+    }
+
+    /**
+     * Loads a saved network into a heap array, e.g. to continue
+     * training it.
+     */
+    public static NTupleNetwork load(Path file) throws IOException {
+        NTupleNetwork mapped = map(file);
+        NTupleNetwork network = new NTupleNetwork(mapped.tuples);
+        mapped.mapped.get(network.weights);
+        return network;
+    }
+
+    /**
+     * Memory-maps a saved network for inference.
+     */
+    public static NTupleNetwork map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an n-tuple network file.");
+            }
+            int[][] tuples = new int[buffer.getInt()][];
+            for (int t = 0; t < tuples.length; t++) {
+                tuples[t] = new int[buffer.getInt()];
+                for (int i = 0; i < tuples[t].length; i++) {
+                    tuples[t][i] = buffer.getInt();
+                }
+            }
+
+            FloatBuffer weights = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            NTupleNetwork network = new NTupleNetwork(tuples, weights);
+            if (weights.capacity() != network.size) {
+                throw new IOException("N-tuple network file is truncated.");
+            }
+            return network;
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int index(long board, int[] shifts) {
+        int index = 0;
+        for (int i = 0; i < shifts.length; i++) {
+            index |= (int) ((board >>> shifts[i]) & 0xF) << (4 * i);
+        }
+        return index;
+    }
+
+    private static int transform(int cell, int symmetry) {
+        int row = cell / 4;
+        int column = cell % 4;
+        for (int i = 0; i < symmetry % 4; i++) {
+            int rotated = column;
+            column = 3 - row;
+            row = rotated;
+        }
+        if (symmetry >= 4) {
+            column = 3 - column;
+        }
+        return row * 4 + column;
+    }
+}
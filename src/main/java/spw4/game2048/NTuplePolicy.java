@@ -0,0 +1,27 @@
+package spw4.game2048;
+
+import java.util.Random;
+
+/**
+ * Plays the move with the highest value according to a trained
+ * n-tuple network.
+ */
+public class NTuplePolicy implements Policy {
+
+    private final NTupleNetwork network;
+
+    public NTuplePolicy(NTupleNetwork network) {
+        this.network = network;
+    }
+
+    @Override
+    public String getName() {
+        return "ntuple";
+    }
+
+    @Override
+    public Direction choose(long board, Random random) {
+        Direction direction = network.bestMove(board);
+        return direction != null ? direction : Direction.down;
+    }
+}
@@ -0,0 +1,139 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trains an {@link NTupleNetwork} by temporal difference learning
+ * on afterstates through self-play. Several threads play games
+ * concurrently and update the shared weights without locking.
+ */
+public class NTupleTrainer {
+
+    private final static int WIN_EXPONENT = 11;
+
+    private final NTupleNetwork network;
+    private final double learningRate;
+    private final AtomicInteger games = new AtomicInteger();
+    private final AtomicLong scores = new AtomicLong();
+    private final AtomicInteger wins = new AtomicInteger();
+
+    public NTupleTrainer(NTupleNetwork network, double learningRate) {
+        this.network = network;
+        this.learningRate = learningRate;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path file = Paths.get(args.length > 2 ? args[2] : "ntuple.bin");
+        double learningRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.1;
+
+        NTupleNetwork network = Files.exists(file) ? NTupleNetwork.load(file) : new NTupleNetwork(NTupleNetwork.smallTuples());
+        NTupleTrainer trainer = new NTupleTrainer(network, learningRate);
+
+        System.out.println("Training " + network.size() + " weights with " + threads + " threads for " + games + " games");
+        long start = System.nanoTime();
+        trainer.train(games, threads, Math.max(1, games / 20));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Trained %d games in %.1fs (%.0f games/s)", games, seconds, games / seconds));
+
+        network.save(file);
+        NTupleNetwork mapped = NTupleNetwork.map(file);
+        int evaluationGames = Math.max(100, games / 100);
+        int evaluationWins = 0;
+        long evaluationScore = 0;
+        for (int i = 0; i < evaluationGames; i++) {
+            Game game = Tournament.play(new NTuplePolicy(mapped), i);
+            evaluationWins += game.isWon() ? 1 : 0;
+            evaluationScore += game.getScore();
+        }
+        System.out.println(String.format("Evaluation: %d games, win rate %.2f%%, mean score %.1f",
+                evaluationGames, 100.0 * evaluationWins / evaluationGames, evaluationScore / (double) evaluationGames));
+    }
+
+    /**
+     * Plays the given number of training games on several threads
+     * and prints throughput, mean score and win rate every
+     * {@code reportInterval} games.
+     */
+    public void train(int totalGames, int threads, int reportInterval) throws InterruptedException {
+        AtomicInteger remaining = new AtomicInteger(totalGames);
+        long[] reportStart = {System.nanoTime()};
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    playAndLearn();
+                    int played = games.incrementAndGet();
+                    if (played % reportInterval == 0) {
+                        report(played, reportInterval, reportStart);
+                    }
+                }
+            }, "ntuple-trainer-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Plays one game greedily with respect to the network and
+     * moves the value of every afterstate towards the reward and
+     * value of the following afterstate.
+     */
+    public int playAndLearn() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long board = PackedBoard.spawn(PackedBoard.spawn(0, random), random);
+        int score = 0;
+
+        Direction direction = network.bestMove(board);
+        if (direction == null) {
+            return 0;
+        }
+        long afterstate = PackedBoard.move(board, direction);
+        score += PackedBoard.score(board, direction);
+
+        while (true) {
+            board = PackedBoard.spawn(afterstate, random);
+            Direction next = network.bestMove(board);
+            if (next == null) {
+                network.update(afterstate, learningRate * -network.value(afterstate));
+                break;
+            }
+
+            long nextAfterstate = PackedBoard.move(board, next);
+            int reward = PackedBoard.score(board, next);
+            double error = reward + network.value(nextAfterstate) - network.value(afterstate);
+            network.update(afterstate, learningRate * error);
+
+            afterstate = nextAfterstate;
+            score += reward;
+        }
+
+        scores.addAndGet(score);
+        if (PackedBoard.maxExponent(board) >= WIN_EXPONENT) {
+            wins.incrementAndGet();
+        }
+        return score;
+    }
+
+    private synchronized void report(int played, int interval, long[] start) {
+        long now = System.nanoTime();
+        double seconds = (now - start[0]) / 1e9;
+        start[0] = now;
+        System.out.println(String.format("%10d games  %8.0f games/s  mean score %8.1f  win rate %6.2f%%",
+                played, interval / seconds, scores.getAndSet(0) / (double) interval,
+                100.0 * wins.getAndSet(0) / interval));
+    }
+}
@@ -0,0 +1,144 @@
+package spw4.game2048;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressed hash set of non-zero longs held outside the
+ * heap in direct buffers. Slots are claimed with compare-and-set,
+ * so several threads can add keys concurrently; growing the set
+ * is done by copying it while no keys are added.
+ */
+public class OffHeapLongSet {
+
+    private final static VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private final static int SEGMENT_BITS = 24;
+    private final static long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    private final static long MIN_CAPACITY = 16;
+
+    private final ByteBuffer[] segments;
+    private final long capacity;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Creates a set whose capacity is the smallest power of two
+     * keeping it at most half full with the given number of keys.
+     */
+    public OffHeapLongSet(long expectedKeys) {
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, 2 * expectedKeys - 1)) << 1);
+        int segmentSlots = (int) Math.min(capacity, SEGMENT_MASK + 1);
+        this.segments = new ByteBuffer[(int) (capacity / segmentSlots)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(8 * segmentSlots).order(ByteOrder.nativeOrder());
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @return true if the key was not contained before
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Zero marks free slots and cannot be added.");
+        }
+
+        long mask = capacity - 1;
+        long slot = mix(key) & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            ByteBuffer segment = segments[(int) (slot >>> SEGMENT_BITS)];
+            int offset = (int) (slot & SEGMENT_MASK) << 3;
+            long current = (long) SLOTS.getVolatile(segment, offset);
+            if (current == 0) {
+                if (SLOTS.compareAndSet(segment, offset, 0L, key)) {
+                    size.increment();
+                    return true;
+                }
+                current = (long) SLOTS.getVolatile(segment, offset);
+            }
+            if (current == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("Set is full.");
+    }
+
+    public boolean contains(long key) {
+        long mask = capacity - 1;
+        long slot = mix(key) & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            long current = (long) SLOTS.getVolatile(segments[(int) (slot >>> SEGMENT_BITS)], (int) (slot & SEGMENT_MASK) << 3);
+            if (current == key) {
+                return key != 0;
+            }
+            if (current == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns whether the given number of further keys can be added
+     * while keeping the set at most half full.
+     */
+    public boolean hasRoomFor(long keys) {
+        return 2 * (size() + keys) <= capacity;
+    }
+
+    /**
+     * Returns a copy of this set with room for the given number of
+     * further keys. Must not be called while keys are added.
+     */
+    public OffHeapLongSet grow(long keys) {
+        OffHeapLongSet grown = new OffHeapLongSet(size() + keys);
+        forEach(grown::add);
+        return grown;
+    }
+
+    public void forEach(LongConsumer action) {
+        for (ByteBuffer segment : segments) {
+            for (int offset = 0; offset < segment.capacity(); offset += 8) {
+                long key = (long) SLOTS.getVolatile(segment, offset);
+                if (key != 0) {
+                    action.accept(key);
+                }
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long size = size();
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Set is too large for an array: " + size);
+        }
+        long[] keys = new long[(int) size];
+        int[] index = {0};
+        forEach(key -> keys[index[0]++] = key);
+        return keys;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
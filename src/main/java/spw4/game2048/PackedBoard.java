@@ -0,0 +1,269 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Game rules on boards packed into a long as returned by
+ * {@link Board#pack()}. Moves are computed with precomputed
+ * tables holding the result of moving every possible row to
+ * the left or right, so no objects are allocated. The tables are
+ * generated during the build and loaded on first use.
+ */
+public final class PackedBoard {
+
+    private final static int ROWS = 1 << 16;
+    private final static int TABLES_MAGIC = 0x50424431;
+    private final static int TABLES_SIZE = 4 + ROWS * (2 + 2 + 4);
+    final static String TABLES_RESOURCE = "packed-board-tables.bin";
+
+    /**
+     * Holds the row tables, so they are only set up when a packed
+     * board is first moved. Moves read the tables straight from the
+     * resource generated during the build, which is memory-mapped if
+     * it is a plain file. Jar entries may be compressed and cannot
+     * be mapped, so they are read into a direct buffer instead. The
+     * tables are only computed if the resource is missing.
+     */
+    private static final class Tables {
+        final static boolean LOADED;
+        final static CharBuffer LEFT;
+        final static CharBuffer RIGHT;
+        final static IntBuffer SCORE;
+
+        static {
+            ByteBuffer buffer = load();
+            LOADED = buffer != null;
+            if (!LOADED) {
+                buffer = computeTables();
+            }
+            LEFT = slice(buffer, 4, 2 * ROWS).asCharBuffer();
+            RIGHT = slice(buffer, 4 + 2 * ROWS, 2 * ROWS).asCharBuffer();
+            SCORE = slice(buffer, 4 + 4 * ROWS, 4 * ROWS).asIntBuffer();
+        }
+    }
+
+    private PackedBoard() {
+    }
+
+    /**
+     * Writes the row tables to the given file, which is done during
+     * the build for the resource {@value #TABLES_RESOURCE}.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : TABLES_RESOURCE);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writeTables(file);
+        System.out.println("Wrote packed board tables to " + file);
+    }
+
+    static void writeTables(Path file) throws IOException {
+        Files.write(file, computeTables().array());
+    }
+
+    private static ByteBuffer computeTables() {
+        char[] left = new char[ROWS];
+        char[] right = new char[ROWS];
+        int[] score = new int[ROWS];
+        compute(left, right, score);
+
+        ByteBuffer buffer = ByteBuffer.allocate(TABLES_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(TABLES_MAGIC);
+        buffer.asCharBuffer().put(left).put(right);
+        buffer.position(buffer.position() + 4 * ROWS);
+        buffer.asIntBuffer().put(score);
+        return buffer.rewind();
+    }
+
+    /**
+     * Returns whether the row tables were loaded from the resource
+     * rather than computed.
+     */
+    static boolean tablesLoaded() {
+        return Tables.LOADED;
+    }
+
+    private static ByteBuffer load() {
+        URL url = PackedBoard.class.getResource(TABLES_RESOURCE);
+        if (url == null) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer;
+            if ("file".equals(url.getProtocol())) {
+                try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            } else {
+                try (ReadableByteChannel channel = Channels.newChannel(url.openStream())) {
+                    buffer = ByteBuffer.allocateDirect(TABLES_SIZE + 1);
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    }
+                    buffer.flip();
+                }
+            }
+
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() != TABLES_SIZE || buffer.getInt(0) != TABLES_MAGIC) {
+                return null;
+            }
+            return buffer;
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void compute(char[] rowLeft, char[] rowRight, int[] rowScore) {
+        int[] values = new int[4];
+        for (int row = 0; row < ROWS; row++) {
+            int count = 0;
+            for (int i = 0; i < 4; i++) {
+                int exponent = (row >>> (4 * i)) & 0xF;
+                if (exponent != 0) {
+                    values[count++] = exponent;
+                }
+            }
+
+            int left = 0;
+            int merged = 0;
+            int score = 0;
+            for (int i = 0; i < count; i++) {
+                int exponent = values[i];
+                if (i + 1 < count && values[i + 1] == exponent && exponent < 15) {
+                    exponent++;
+                    score += 1 << exponent;
+                    i++;
+                }
+                left |= exponent << (4 * merged++);
+            }
+
+            rowLeft[row] = (char) left;
+            rowScore[row] = score;
+            rowRight[reverse(row)] = (char) reverse(left);
+        }
+    }
+
+    /**
+     * Moves all tiles in the given direction without spawning a
+     * new tile.
+     */
+    public static long move(long board, Direction direction) {
+        switch (direction) {
+            case left:
+                return moveRows(board, Tables.LEFT);
+            case right:
+                return moveRows(board, Tables.RIGHT);
+            case up:
+                return transpose(moveRows(transpose(board), Tables.LEFT));
+            default:
+                return transpose(moveRows(transpose(board), Tables.RIGHT));
+        }
+    }
+
+    /**
+     * Returns the points gained by moving in the given direction.
+     */
+    public static int score(long board, Direction direction) {
+        long rows = direction == Direction.left || direction == Direction.right ? board : transpose(board);
+        int score = 0;
+        for (int i = 0; i < 4; i++) {
+            int row = (int) (rows >>> (16 * i)) & 0xFFFF;
+            score += direction == Direction.left || direction == Direction.up
+                    ? Tables.SCORE.get(row) : Tables.SCORE.get(reverse(row));
+        }
+        return score;
+    }
+
+    public static boolean canMove(long board) {
+        for (Direction direction : Direction.values()) {
+            if (move(board, direction) != board) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int emptyCount(long board) {
+        int count = 0;
+        for (int i = 0; i < 16; i++) {
+            if (((board >>> (4 * i)) & 0xF) == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static int maxExponent(long board) {
+        int max = 0;
+        for (int i = 0; i < 16; i++) {
+            max = Math.max(max, (int) (board >>> (4 * i)) & 0xF);
+        }
+        return max;
+    }
+
+    /**
+     * Places a new tile on a random empty cell, a 2 with 90% and
+     * a 4 with 10% probability like {@link Board#move(Direction)}.
+     */
+    public static long spawn(long board, Random random) {
+        int empty = emptyCount(board);
+        if (empty == 0) {
+            return board;
+        }
+
+        long exponent = random.nextInt(100) < 90 ? 1 : 2;
+        int index = random.nextInt(empty);
+        for (int i = 0; i < 16; i++) {
+            if (((board >>> (4 * i)) & 0xF) == 0 && index-- == 0) {
+                return board | exponent << (4 * i);
+            }
+        }
+        return board;
+    }
+
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    private static long moveRows(long board, CharBuffer table) {
+        long result = 0;
+        for (int i = 0; i < 4; i++) {
+            int row = (int) (board >>> (16 * i)) & 0xFFFF;
+            result |= (long) table.get(row) << (16 * i);
+        }
+        return result;
+    }
+
+    private static int reverse(int row) {
+        return ((row & 0xF) << 12) | ((row & 0xF0) << 4) | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+    }
+}
@@ -0,0 +1,93 @@
+package spw4.game2048;
+
+import java.util.Random;
+
+/**
+ * Simple built-in policies for tournaments.
+ */
+public final class Policies {
+
+    private final static Direction[] DIRECTIONS = Direction.values();
+    private final static Direction[] CORNER_ORDER = {Direction.down, Direction.left, Direction.right, Direction.up};
+
+    private Policies() {
+    }
+
+    /**
+     * Plays a random move which changes the board.
+     */
+    public static Policy random() {
+        return new Policy() {
+            @Override
+            public String getName() {
+                return "random";
+            }
+
+            @Override
+            public Direction choose(long board, Random random) {
+                int start = random.nextInt(DIRECTIONS.length);
+                for (int i = 0; i < DIRECTIONS.length; i++) {
+                    Direction direction = DIRECTIONS[(start + i) % DIRECTIONS.length];
+                    if (PackedBoard.move(board, direction) != board) {
+                        return direction;
+                    }
+                }
+                return DIRECTIONS[start];
+            }
+        };
+    }
+
+    /**
+     * Keeps the tiles in the bottom left corner by preferring
+     * down, then left, then right and only then up.
+     */
+    public static Policy corner() {
+        return new Policy() {
+            @Override
+            public String getName() {
+                return "corner";
+            }
+
+            @Override
+            public Direction choose(long board, Random random) {
+                for (Direction direction : CORNER_ORDER) {
+                    if (PackedBoard.move(board, direction) != board) {
+                        return direction;
+                    }
+                }
+                return Direction.down;
+            }
+        };
+    }
+
+    /**
+     * Plays the move which gains the most points, preferring moves
+     * which leave more empty cells on ties.
+     */
+    public static Policy greedy() {
+        return new Policy() {
+            @Override
+            public String getName() {
+                return "greedy";
+            }
+
+            @Override
+            public Direction choose(long board, Random random) {
+                Direction best = Direction.down;
+                long bestValue = Long.MIN_VALUE;
+                for (Direction direction : DIRECTIONS) {
+                    long moved = PackedBoard.move(board, direction);
+                    if (moved == board) {
+                        continue;
+                    }
+                    long value = 16L * PackedBoard.score(board, direction) + PackedBoard.emptyCount(moved);
+                    if (value > bestValue) {
+                        bestValue = value;
+                        best = direction;
+                    }
+                }
+                return best;
+            }
+        };
+    }
+}
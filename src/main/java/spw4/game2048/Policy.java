@@ -0,0 +1,20 @@
+package spw4.game2048;
+
+import java.util.Random;
+
+/**
+ * Strategy choosing the next move of a game. Implementations
+ * must be stateless, so one instance can play many games
+ * concurrently, and should only return directions which change
+ * the board as long as such a move exists.
+ */
+public interface Policy {
+
+    String getName();
+
+    /**
+     * @param board  the packed board as returned by {@link Board#pack()}
+     * @param random source of randomness owned by the current game
+     */
+    Direction choose(long board, Random random);
+}
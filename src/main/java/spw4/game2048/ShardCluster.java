@@ -0,0 +1,109 @@
+package spw4.game2048;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes games to the nodes of a cluster by consistent hashing
+ * and rebalances the packed game state when nodes of this process
+ * join or leave. Games are imported by their new owner before the
+ * ring is switched, so every game has an owner holding it.
+ */
+public class ShardCluster {
+
+    public final static int DEFAULT_VIRTUAL_NODES = 128;
+
+    private volatile ConsistentHashRing ring;
+    private final Map<String, ShardNode> nodes = new ConcurrentHashMap<>();
+
+    public ShardCluster() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ShardCluster(int virtualNodes) {
+        ring = new ConsistentHashRing(virtualNodes);
+    }
+
+    /**
+     * Parses a cluster configuration of the form
+     * {@code id=url,id=url,...}.
+     */
+    public static ShardCluster parse(String configuration) {
+        ShardCluster cluster = new ShardCluster();
+        for (String entry : configuration.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Invalid node configuration: " + entry);
+            }
+            cluster.join(new ShardNode(parts[0].trim(), parts[1].trim()));
+        }
+        return cluster;
+    }
+
+    public synchronized void join(ShardNode node) {
+        if (nodes.containsKey(node.getId())) {
+            throw new IllegalArgumentException("Node " + node.getId() + " is already part of the cluster.");
+        }
+
+        ConsistentHashRing next = ring.copy();
+        next.add(node.getId());
+        for (ShardNode other : nodes.values()) {
+            node.importStates(other.export(id -> next.ownerOf(id).equals(node.getId())));
+        }
+
+        nodes.put(node.getId(), node);
+        ring = next;
+        for (ShardNode other : nodes.values()) {
+            other.removeClosed();
+        }
+    }
+
+    public synchronized void leave(String nodeId) {
+        ShardNode node = nodes.get(nodeId);
+        if (node == null) {
+            throw new IllegalArgumentException("Node " + nodeId + " is not part of the cluster.");
+        }
+        if (nodes.size() == 1) {
+            throw new IllegalStateException("The last node cannot leave the cluster.");
+        }
+
+        ConsistentHashRing next = ring.copy();
+        next.remove(nodeId);
+        ByteBuffer states = node.export(id -> true);
+        while (states.hasRemaining()) {
+            GameState state = GameCodec.decode(states);
+            nodes.get(next.ownerOf(state.getId())).importState(state);
+        }
+
+        ring = next;
+        nodes.remove(nodeId);
+        node.removeClosed();
+    }
+
+    public ShardNode node(String nodeId) {
+        return nodes.get(nodeId);
+    }
+
+    public ShardNode nodeFor(UUID id) {
+        return nodes.get(ring.ownerOf(id));
+    }
+
+    public Collection<ShardNode> nodes() {
+        return new ArrayList<>(nodes.values());
+    }
+
+    /**
+     * Creates a new random game id which is owned by the given node.
+     */
+    public UUID newIdFor(ShardNode node) {
+        UUID id = UUID.randomUUID();
+        while (nodeFor(id) != node) {
+            id = UUID.randomUUID();
+        }
+        return id;
+    }
+}
@@ -0,0 +1,92 @@
+package spw4.game2048;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * A node of the game cluster. It owns the games which the
+ * consistent hash ring assigns to it and is reachable under
+ * its URL.
+ */
+public class ShardNode {
+
+    private final String id;
+    private final String url;
+    private final Map<UUID, GameSession> games = new ConcurrentHashMap<>();
+
+    public ShardNode(String id, String url) {
+        this.id = id;
+        this.url = url;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public GameSession get(UUID id) {
+        return games.get(id);
+    }
+
+    public GameSession put(UUID id, Game game) {
+        GameSession session = new GameSession(id, game);
+        games.put(id, session);
+        return session;
+    }
+
+    public int size() {
+        return games.size();
+    }
+
+    /**
+     * Closes all games matching the given filter and returns their
+     * binary encoded state, so they can be imported by another node.
+     * The closed sessions are kept until {@link #removeClosed()}, so
+     * requests arriving during the migration find them closed
+     * instead of missing.
+     */
+    public ByteBuffer export(Predicate<UUID> filter) {
+        List<GameState> exported = new ArrayList<>();
+        for (GameSession session : games.values()) {
+            if (filter.test(session.getId()) && !session.isClosed()) {
+                exported.add(session.close());
+            }
+        }
+
+        int size = 0;
+        for (GameState state : exported) {
+            size += GameCodec.maxSize(state);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (GameState state : exported) {
+            GameCodec.encode(state, buffer);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Removes the sessions closed by {@link #export(Predicate)}, once
+     * the cluster routes their games to the new owner.
+     */
+    public void removeClosed() {
+        games.values().removeIf(GameSession::isClosed);
+    }
+
+    public void importStates(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            importState(GameCodec.decode(buffer));
+        }
+    }
+
+    public void importState(GameState state) {
+        put(state.getId(), state.toGame());
+    }
+}
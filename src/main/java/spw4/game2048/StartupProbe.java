@@ -0,0 +1,72 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Measures how long a freshly started JVM takes until the engine
+ * has made its first move and until the first response (a game
+ * page and a binary game state) has been rendered. Used as the
+ * training run for the class data sharing archive of the
+ * {@code appcds} build profile, in which case it also plays a
+ * number of games to load the classes used while serving.
+ */
+public class StartupProbe {
+
+    public static void main(String[] args) throws IOException {
+        long mainEntered = System.currentTimeMillis();
+        int trainingGames = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        String label = args.length > 1 ? args[1] : "startup";
+
+        Game game = new Game(Game.DEFAULT_SEED);
+        game.initialize();
+        game.move(Direction.left);
+        PackedBoard.move(game.board.pack(), Direction.up);
+        long firstMove = System.currentTimeMillis();
+
+        UUID id = UUID.randomUUID();
+        String page = new GamePage(new Assets(null)).render(GameSnapshot.of(id, game));
+        byte[] state = GameCodec.encode(GameState.of(id, game));
+        long firstResponse = System.currentTimeMillis();
+
+        if (trainingGames > 0) {
+            train(trainingGames);
+        }
+
+        long jvmStart = ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElse(mainEntered);
+        System.out.println(String.format("[%s] main entered after %d ms, first move after %d ms, first response after %d ms"
+                        + " (%d chars, %d bytes, tables %s)",
+                label, mainEntered - jvmStart, firstMove - jvmStart, firstResponse - jvmStart,
+                page.length(), state.length, PackedBoard.tablesLoaded() ? "loaded" : "computed"));
+    }
+
+    /**
+     * Exercises the classes used by the servlet and the batch
+     * tools: plays games with each policy, routes them through a
+     * cluster, encodes them and renders their pages.
+     */
+    private static void train(int games) throws IOException {
+        ShardCluster cluster = new ShardCluster();
+        ShardNode node = new ShardNode("local", "Game");
+        cluster.join(node);
+        AdmissionController admission = new AdmissionController();
+        GamePage page = new GamePage(new Assets(null));
+
+        for (int seed = 0; seed < games; seed++) {
+            for (Policy policy : new Policy[]{Policies.random(), Policies.corner(), Policies.greedy()}) {
+                UUID id = cluster.newIdFor(node);
+                admission.admit("127.0.0.1", true);
+                Game game = Tournament.play(policy, seed);
+                GameSnapshot snapshot = node.put(id, game).snapshot();
+                GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(snapshot.getState())));
+                GameRecord.of(game);
+                page.render(snapshot);
+                admission.observeDelay(0);
+            }
+        }
+    }
+}
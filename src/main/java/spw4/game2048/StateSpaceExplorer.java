@@ -0,0 +1,570 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Enumerates every position reachable on a small square board
+ * from the starts created by {@link Board#initialize()} and
+ * computes the optimal expected score and the optimal win
+ * probability by retrograde analysis.
+ * <p>
+ * Every move adds the value of the spawned tile to the sum of all
+ * tiles, so positions fall into levels by their tile sum and each
+ * level only leads to the next two. Levels are searched breadth
+ * first in order of their sum, the successors of a level being
+ * collected in parallel in off-heap hash sets. Finished levels are
+ * kept as sorted arrays, or written to disk once more states than
+ * allowed are held in memory, and are then evaluated from the
+ * highest sum downwards. Positions containing the winning tile end
+ * the game like in {@link Game#isOver()}.
+ */
+public class StateSpaceExplorer {
+
+    private final static int BATCH = 1 << 12;
+    private final static int SPLIT = 1024;
+    private final static double[] SPAWN_PROBABILITY = {0, 0.9, 0.1};
+
+    private final int size;
+    private final int cells;
+    private final int winExponent;
+    private final ForkJoinPool pool;
+    private final Path spillDirectory;
+    private final long maxStatesInMemory;
+    private final char[] rowLeft;
+    private final char[] rowRight;
+    private final int[] scoreLeft;
+    private final int[] scoreRight;
+
+    private final TreeMap<Integer, Level> levels = new TreeMap<>();
+    private long states;
+    private long largestLevel;
+    private long statesInMemory;
+    private long spilledStates;
+
+    /**
+     * @param size              number of rows and columns, 2 to 4
+     * @param winExponent       exponent of the tile winning the game
+     * @param spillDirectory    directory for levels which do not fit
+     *                          into memory, or null to keep all levels
+     *                          in memory
+     * @param maxStatesInMemory number of states of finished levels to
+     *                          keep in memory before levels are
+     *                          written to the spill directory
+     */
+    public StateSpaceExplorer(int size, int winExponent, ForkJoinPool pool, Path spillDirectory, long maxStatesInMemory) {
+        if (size < 2 || size > 4) {
+            throw new IllegalArgumentException("Board size must be between 2 and 4.");
+        }
+        if (winExponent < 2 || winExponent > 15) {
+            throw new IllegalArgumentException("Win exponent must be between 2 and 15.");
+        }
+        this.size = size;
+        this.cells = size * size;
+        this.winExponent = winExponent;
+        this.pool = pool;
+        this.spillDirectory = spillDirectory;
+        this.maxStatesInMemory = maxStatesInMemory;
+
+        int rows = 1 << (4 * size);
+        rowLeft = new char[rows];
+        rowRight = new char[rows];
+        scoreLeft = new int[rows];
+        scoreRight = new int[rows];
+        int[] values = new int[size];
+        for (int row = 0; row < rows; row++) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int exponent = (row >>> (4 * i)) & 0xF;
+                if (exponent != 0) {
+                    values[count++] = exponent;
+                }
+            }
+
+            int left = 0;
+            int merged = 0;
+            int score = 0;
+            for (int i = 0; i < count; i++) {
+                int exponent = values[i];
+                if (i + 1 < count && values[i + 1] == exponent && exponent < 15) {
+                    exponent++;
+                    score += 1 << exponent;
+                    i++;
+                }
+                left |= exponent << (4 * merged++);
+            }
+
+            rowLeft[row] = (char) left;
+            scoreLeft[row] = score;
+            rowRight[reverse(row)] = (char) reverse(left);
+            scoreRight[reverse(row)] = score;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int winExponent = args.length > 1 ? Integer.parseInt(args[1]) : 11;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Path spillDirectory = args.length > 3 ? Paths.get(args[3]) : null;
+        long maxStatesInMemory = args.length > 4 ? Long.parseLong(args[4]) : Long.MAX_VALUE;
+
+        if (spillDirectory != null) {
+            Files.createDirectories(spillDirectory);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Result result = new StateSpaceExplorer(size, winExponent, pool, spillDirectory, maxStatesInMemory).explore();
+        pool.shutdown();
+
+        System.out.println(String.format("%dx%d board, winning tile %d, %d threads", size, size, 1 << winExponent, threads));
+        System.out.println(String.format("States:         %d in %d levels (largest %d, spilled %d)",
+                result.getStates(), result.getLevels(), result.getLargestLevel(), result.getSpilledStates()));
+        System.out.println(String.format("Time:           %.1fs (%.0f states/s)",
+                result.getSeconds(), result.getStates() / result.getSeconds()));
+        System.out.println(String.format("Expected score: %.4f", result.getExpectedScore()));
+        System.out.println(String.format("Win chance:     %.6f", result.getWinProbability()));
+    }
+
+    /**
+     * Enumerates all reachable positions and evaluates them. Each
+     * explorer can only be used once.
+     */
+    public Result explore() throws IOException {
+        if (!levels.isEmpty()) {
+            throw new IllegalStateException("Explorer has already been used.");
+        }
+
+        long start = System.nanoTime();
+        Map<Long, Double> starts = starts();
+        search(starts);
+        Map<Integer, Values> values = evaluate();
+
+        double expectedScore = 0;
+        double winProbability = 0;
+        for (Map.Entry<Long, Double> entry : starts.entrySet()) {
+            Values level = values.get(sum(entry.getKey()));
+            int index = level.index(entry.getKey());
+            expectedScore += entry.getValue() * level.score[index];
+            winProbability += entry.getValue() * level.win[index];
+        }
+
+        return new Result(states, levels.size(), largestLevel, spilledStates, expectedScore, winProbability,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Moves all tiles of a board packed with {@code size} cells per
+     * row (cell at row r and column c in bits {@code 4 * (r * size + c)})
+     * without spawning a new tile.
+     */
+    public long move(long board, Direction direction) {
+        boolean horizontal = direction == Direction.left || direction == Direction.right;
+        char[] table = direction == Direction.left || direction == Direction.up ? rowLeft : rowRight;
+        long result = 0;
+        for (int i = 0; i < size; i++) {
+            int line = table[line(board, i, horizontal)];
+            for (int k = 0; k < size; k++) {
+                result |= (long) ((line >>> (4 * k)) & 0xF) << (4 * cell(i, k, horizontal));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the points gained by moving in the given direction.
+     */
+    public int score(long board, Direction direction) {
+        boolean horizontal = direction == Direction.left || direction == Direction.right;
+        int[] table = direction == Direction.left || direction == Direction.up ? scoreLeft : scoreRight;
+        int score = 0;
+        for (int i = 0; i < size; i++) {
+            score += table[line(board, i, horizontal)];
+        }
+        return score;
+    }
+
+    private Map<Long, Double> starts() {
+        Map<Long, Double> starts = new HashMap<>();
+        for (int first = 0; first < cells; first++) {
+            for (int second = 0; second < cells; second++) {
+                if (first == second) {
+                    continue;
+                }
+                for (int a = 1; a <= 2; a++) {
+                    for (int b = 1; b <= 2; b++) {
+                        long board = (long) a << (4 * first) | (long) b << (4 * second);
+                        double probability = SPAWN_PROBABILITY[a] * SPAWN_PROBABILITY[b] / (cells * (cells - 1.0));
+                        starts.merge(board, probability, Double::sum);
+                    }
+                }
+            }
+        }
+        return starts;
+    }
+
+    private void search(Map<Long, Double> starts) throws IOException {
+        TreeMap<Integer, OffHeapLongSet> pending = new TreeMap<>();
+        for (long board : starts.keySet()) {
+            ensureRoom(pending, sum(board), starts.size()).add(board);
+        }
+
+        while (!pending.isEmpty()) {
+            Map.Entry<Integer, OffHeapLongSet> next = pending.pollFirstEntry();
+            int sum = next.getKey();
+            long[] level = next.getValue().toArray();
+            if (level.length == 0) {
+                continue;
+            }
+            Arrays.parallelSort(level);
+
+            long successorsPerState = 4L * (cells - 1);
+            for (int from = 0; from < level.length; from += BATCH) {
+                int to = Math.min(level.length, from + BATCH);
+                OffHeapLongSet two = ensureRoom(pending, sum + 1, (to - from) * successorsPerState);
+                OffHeapLongSet four = ensureRoom(pending, sum + 2, (to - from) * successorsPerState);
+                pool.invoke(new RangeTask(from, to, i -> expand(level[i], two, four)));
+            }
+
+            store(sum, level);
+        }
+    }
+
+    private void expand(long board, OffHeapLongSet two, OffHeapLongSet four) {
+        if (isWon(board)) {
+            return;
+        }
+        for (Direction direction : Direction.values()) {
+            long after = move(board, direction);
+            if (after == board) {
+                continue;
+            }
+            for (int cell = 0; cell < cells; cell++) {
+                if (((after >>> (4 * cell)) & 0xF) == 0) {
+                    two.add(after | 1L << (4 * cell));
+                    four.add(after | 2L << (4 * cell));
+                }
+            }
+        }
+    }
+
+    private OffHeapLongSet ensureRoom(TreeMap<Integer, OffHeapLongSet> pending, int sum, long keys) {
+        OffHeapLongSet set = pending.get(sum);
+        if (set == null) {
+            set = new OffHeapLongSet(keys);
+        } else if (!set.hasRoomFor(keys)) {
+            set = set.grow(keys);
+        }
+        pending.put(sum, set);
+        return set;
+    }
+
+    private void store(int sum, long[] level) throws IOException {
+        states += level.length;
+        largestLevel = Math.max(largestLevel, level.length);
+
+        if (spillDirectory != null && statesInMemory + level.length > maxStatesInMemory) {
+            Path file = spillDirectory.resolve("level-" + sum + ".bin");
+            write(file, level);
+            levels.put(sum, new Level(file, level.length));
+            spilledStates += level.length;
+        } else {
+            levels.put(sum, new Level(level));
+            statesInMemory += level.length;
+        }
+    }
+
+    /**
+     * Evaluates the levels from the highest sum downwards and
+     * returns the values of the three lowest levels, which contain
+     * all starts.
+     */
+    private Map<Integer, Values> evaluate() throws IOException {
+        Map<Integer, Values> window = new HashMap<>();
+        for (int sum : levels.descendingKeySet()) {
+            long[] level = levels.get(sum).release();
+            Values values = new Values(level);
+            Values two = window.get(sum + 1);
+            Values four = window.get(sum + 2);
+            pool.invoke(new RangeTask(0, level.length, i -> evaluate(level[i], i, values, two, four)));
+
+            window.put(sum, values);
+            window.remove(sum + 3);
+        }
+        return window;
+    }
+
+    private void evaluate(long board, int index, Values values, Values two, Values four) {
+        if (isWon(board)) {
+            values.win[index] = 1;
+            return;
+        }
+
+        double bestScore = 0;
+        double bestWin = 0;
+        for (Direction direction : Direction.values()) {
+            long after = move(board, direction);
+            if (after == board) {
+                continue;
+            }
+
+            int empty = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if (((after >>> (4 * cell)) & 0xF) == 0) {
+                    empty++;
+                }
+            }
+
+            double score = score(board, direction);
+            double win = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if (((after >>> (4 * cell)) & 0xF) != 0) {
+                    continue;
+                }
+                for (int exponent = 1; exponent <= 2; exponent++) {
+                    Values next = exponent == 1 ? two : four;
+                    int successor = next.index(after | (long) exponent << (4 * cell));
+                    double probability = SPAWN_PROBABILITY[exponent] / empty;
+                    score += probability * next.score[successor];
+                    win += probability * next.win[successor];
+                }
+            }
+
+            bestScore = Math.max(bestScore, score);
+            bestWin = Math.max(bestWin, win);
+        }
+
+        values.score[index] = bestScore;
+        values.win[index] = bestWin;
+    }
+
+    private boolean isWon(long board) {
+        for (int cell = 0; cell < cells; cell++) {
+            if (((board >>> (4 * cell)) & 0xF) >= winExponent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the sum of all tiles divided by two.
+     */
+    private int sum(long board) {
+        int sum = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int exponent = (int) (board >>> (4 * cell)) & 0xF;
+            sum += exponent == 0 ? 0 : 1 << (exponent - 1);
+        }
+        return sum;
+    }
+
+    private int line(long board, int i, boolean horizontal) {
+        int line = 0;
+        for (int k = 0; k < size; k++) {
+            line |= (int) ((board >>> (4 * cell(i, k, horizontal))) & 0xF) << (4 * k);
+        }
+        return line;
+    }
+
+    private int cell(int i, int k, boolean horizontal) {
+        return horizontal ? i * size + k : k * size + i;
+    }
+
+    private int reverse(int row) {
+        int reversed = 0;
+        for (int i = 0; i < size; i++) {
+            reversed |= ((row >>> (4 * i)) & 0xF) << (4 * (size - 1 - i));
+        }
+        return reversed;
+    }
+
+    private static void write(Path file, long[] level) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            LongBuffer longs = chunk.asLongBuffer();
+            for (int i = 0; i < level.length; i += longs.capacity()) {
+                int length = Math.min(longs.capacity(), level.length - i);
+                longs.clear();
+                longs.put(level, i, length);
+                chunk.clear().limit(8 * length);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+        }
+    }
+
+    private static long[] read(Path file, int count) throws IOException {
+        long[] level = new long[count];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            LongBuffer longs = chunk.asLongBuffer();
+            for (int i = 0; i < count; i += longs.capacity()) {
+                int length = Math.min(longs.capacity(), count - i);
+                chunk.clear().limit(8 * length);
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk) < 0) {
+                        throw new IOException("Spilled level " + file + " is truncated.");
+                    }
+                }
+                longs.clear();
+                longs.get(level, i, length);
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Sorted states of a finished level, held in memory or in a
+     * spill file.
+     */
+    private static final class Level {
+        private long[] states;
+        private final Path file;
+        private final int count;
+
+        Level(long[] states) {
+            this.states = states;
+            this.file = null;
+            this.count = states.length;
+        }
+
+        Level(Path file, int count) {
+            this.file = file;
+            this.count = count;
+        }
+
+        /**
+         * Returns the states and drops this level's reference to
+         * them, deleting the spill file.
+         */
+        long[] release() throws IOException {
+            if (file == null) {
+                long[] released = states;
+                states = null;
+                return released;
+            }
+            long[] loaded = read(file, count);
+            Files.delete(file);
+            return loaded;
+        }
+    }
+
+    /**
+     * Optimal values of the states of a level.
+     */
+    private static final class Values {
+        private final long[] states;
+        private final double[] score;
+        private final double[] win;
+
+        Values(long[] states) {
+            this.states = states;
+            this.score = new double[states.length];
+            this.win = new double[states.length];
+        }
+
+        int index(long board) {
+            int index = Arrays.binarySearch(states, board);
+            if (index < 0) {
+                throw new IllegalStateException("State " + Long.toHexString(board) + " was not explored.");
+            }
+            return index;
+        }
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        RangeTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, action), new RangeTask(middle, to, action));
+        }
+    }
+
+    public static class Result {
+        private final long states;
+        private final int levels;
+        private final long largestLevel;
+        private final long spilledStates;
+        private final double expectedScore;
+        private final double winProbability;
+        private final double seconds;
+
+        Result(long states, int levels, long largestLevel, long spilledStates, double expectedScore,
+               double winProbability, double seconds) {
+            this.states = states;
+            this.levels = levels;
+            this.largestLevel = largestLevel;
+            this.spilledStates = spilledStates;
+            this.expectedScore = expectedScore;
+            this.winProbability = winProbability;
+            this.seconds = seconds;
+        }
+
+        public long getStates() {
+            return states;
+        }
+
+        public int getLevels() {
+            return levels;
+        }
+
+        public long getLargestLevel() {
+            return largestLevel;
+        }
+
+        public long getSpilledStates() {
+            return spilledStates;
+        }
+
+        /**
+         * Expected score of a new game when every move maximizes
+         * the expected score.
+         */
+        public double getExpectedScore() {
+            return expectedScore;
+        }
+
+        /**
+         * Probability of winning a new game when every move
+         * maximizes the probability of winning.
+         */
+        public double getWinProbability() {
+            return winProbability;
+        }
+
+        public double getSeconds() {
+            return seconds;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package spw4.game2048;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Serves fingerprinted static assets with far-future immutable
+ * caching, choosing a precompressed brotli or gzip variant as
+ * allowed by the Accept-Encoding header. If the container supports
+ * Tomcat's sendfile attributes, the file is handed to the container,
+ * which lets the operating system send it without copying it through
+ * the heap; otherwise it is copied to the response stream. All other
+ * requests are passed on.
+ */
+@WebFilter({"/css/*", "/icons/*", "/js/*"})
+public class StaticAssetFilter implements Filter {
+
+    private final static String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private final static String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private final static String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private final static String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private final static String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private ServletContext context;
+    private Assets assets;
+
+    @Override
+    public void init(FilterConfig config) {
+        context = config.getServletContext();
+        assets = Assets.of(context);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+
+        String realPath = assets.isFingerprinted(path) ? context.getRealPath("/" + path) : null;
+        if (realPath == null || !"GET".equals(httpRequest.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Path file = Paths.get(realPath);
+        String acceptEncoding = httpRequest.getHeader("Accept-Encoding");
+        String encoding = null;
+        if (accepts(acceptEncoding, "br") && Files.isRegularFile(Paths.get(realPath + ".br"))) {
+            encoding = "br";
+            file = Paths.get(realPath + ".br");
+        } else if (accepts(acceptEncoding, "gzip") && Files.isRegularFile(Paths.get(realPath + ".gz"))) {
+            encoding = "gzip";
+            file = Paths.get(realPath + ".gz");
+        }
+
+        if (!Files.isRegularFile(file)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String contentType = context.getMimeType(path);
+        if (contentType != null) {
+            httpResponse.setContentType(contentType);
+        }
+        if (encoding != null) {
+            httpResponse.setHeader("Content-Encoding", encoding);
+        }
+        httpResponse.setHeader("Vary", "Accept-Encoding");
+        httpResponse.setHeader("Cache-Control", CACHE_CONTROL);
+
+        long size = Files.size(file);
+        httpResponse.setHeader("Content-Length", String.valueOf(size));
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+        } else {
+            Files.copy(file, httpResponse.getOutputStream());
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if (tokens[0].trim().equalsIgnoreCase(encoding)) {
+                return tokens.length < 2 || !tokens[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,83 @@
+package spw4.game2048;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter. Tokens are refilled continuously at
+ * a fixed rate up to the capacity of the bucket.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier clock;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double capacity, double tokensPerSecond, LongSupplier clock) {
+        if (capacity <= 0 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and rate must be positive.");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    public synchronized boolean tryAcquire() {
+        return tryAcquire(0);
+    }
+
+    /**
+     * Takes a token only if at least {@code reserve} tokens remain
+     * in the bucket afterwards.
+     */
+    public synchronized boolean tryAcquire(double reserve) {
+        refill();
+        if (tokens - 1 < reserve) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire} for a request
+     * which was rejected elsewhere after all.
+     */
+    public synchronized void release() {
+        refill();
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * Returns the number of seconds until a token is available
+     * while keeping the given reserve.
+     */
+    public synchronized long secondsUntilAvailable(double reserve) {
+        refill();
+        double missing = reserve + 1 - tokens;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / tokensPerNano / 1e9);
+    }
+
+    public synchronized double getTokens() {
+        refill();
+        return tokens;
+    }
+
+    public double getCapacity() {
+        return capacity;
+    }
+
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
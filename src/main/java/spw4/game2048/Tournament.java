@@ -0,0 +1,220 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lets several policies play the same seeded games and ranks
+ * them by their mean score. The games are distributed across
+ * all cores by a work stealing fork/join pool.
+ */
+public class Tournament {
+
+    private final static int MAX_STALLED_MOVES = 100;
+    private final static double Z_95 = 1.96;
+
+    private final List<Policy> policies;
+    private final long[] seeds;
+
+    public Tournament(List<Policy> policies, long[] seeds) {
+        if (policies.isEmpty() || seeds.length == 0) {
+            throw new IllegalArgumentException("At least one policy and one seed are required.");
+        }
+        this.policies = policies;
+        this.seeds = seeds;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        List<Policy> policies = new ArrayList<>(List.of(Policies.random(), Policies.corner(), Policies.greedy()));
+        if (args.length > 2) {
+            policies.add(new NTuplePolicy(NTupleNetwork.map(Paths.get(args[2]))));
+        }
+
+        long[] seeds = new Random(2048).longs(games).toArray();
+        Tournament tournament = new Tournament(policies, seeds);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        List<Result> results = tournament.run(pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.println("Tournament: " + results.size() + " policies, " + games + " seeds, " + threads + " threads");
+        System.out.println("rank  policy      mean score            win rate             mean moves  games/cpu-s");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            System.out.println(String.format("%4d  %-10s  %8.1f +/- %-7.1f  %6.2f%% +/- %5.2f%%  %10.1f  %11.1f",
+                    i + 1,
+                    result.getPolicy(),
+                    result.getMeanScore(),
+                    result.getScoreConfidence(),
+                    100 * result.getWinRate(),
+                    100 * result.getWinRateConfidence(),
+                    result.getMeanMoves(),
+                    result.getGamesPerCpuSecond()));
+        }
+        System.out.println(String.format("Total: %.1f games/s wall-clock", results.size() * games / seconds));
+    }
+
+    /**
+     * Plays all games and returns the results ranked by mean score.
+     */
+    public List<Result> run(ForkJoinPool pool) {
+        int games = policies.size() * seeds.length;
+        int[] scores = new int[games];
+        int[] moves = new int[games];
+        boolean[] won = new boolean[games];
+        long[] cpuNanos = new long[games];
+
+        pool.invoke(new PlayTask(0, games, scores, moves, won, cpuNanos));
+
+        List<Result> results = new ArrayList<>();
+        for (int p = 0; p < policies.size(); p++) {
+            int from = p * seeds.length;
+            results.add(new Result(policies.get(p).getName(), scores, moves, won, cpuNanos, from, from + seeds.length));
+        }
+        results.sort(Comparator.comparingDouble(Result::getMeanScore).reversed());
+        return results;
+    }
+
+    /**
+     * Plays one game of the given policy. The game and the policy
+     * own separate random generators derived from the seed, so the
+     * result only depends on the policy and the seed.
+     */
+    public static Game play(Policy policy, long seed) {
+        Game game = new Game(seed);
+        game.initialize();
+        Random random = new Random(~seed);
+
+        int stalled = 0;
+        while (!game.isOver() && stalled < MAX_STALLED_MOVES) {
+            int moves = game.getMoves();
+            game.move(policy.choose(game.board.pack(), random));
+            stalled = game.getMoves() == moves ? stalled + 1 : 0;
+        }
+        return game;
+    }
+
+    private class PlayTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int[] scores;
+        private final int[] moves;
+        private final boolean[] won;
+        private final long[] cpuNanos;
+
+        PlayTask(int from, int to, int[] scores, int[] moves, boolean[] won, long[] cpuNanos) {
+            this.from = from;
+            this.to = to;
+            this.scores = scores;
+            this.moves = moves;
+            this.won = won;
+            this.cpuNanos = cpuNanos;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PlayTask(from, middle, scores, moves, won, cpuNanos),
+                        new PlayTask(middle, to, scores, moves, won, cpuNanos));
+                return;
+            }
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long start = threads.getCurrentThreadCpuTime();
+            Game game = play(policies.get(from / seeds.length), seeds[from % seeds.length]);
+            cpuNanos[from] = threads.getCurrentThreadCpuTime() - start;
+            scores[from] = game.getScore();
+            moves[from] = game.getMoves();
+            won[from] = game.isWon();
+        }
+    }
+
+    /**
+     * Aggregated result of one policy with 95% confidence
+     * intervals for the mean score and the win rate.
+     */
+    public static class Result {
+        private final String policy;
+        private final int games;
+        private final double meanScore;
+        private final double scoreConfidence;
+        private final double winRate;
+        private final double winRateConfidence;
+        private final double meanMoves;
+        private final double gamesPerCpuSecond;
+
+        Result(String policy, int[] scores, int[] moves, boolean[] won, long[] cpuNanos, int from, int to) {
+            this.policy = policy;
+            this.games = to - from;
+
+            double scoreSum = 0;
+            double movesSum = 0;
+            int wins = 0;
+            long cpu = 0;
+            for (int i = from; i < to; i++) {
+                scoreSum += scores[i];
+                movesSum += moves[i];
+                wins += won[i] ? 1 : 0;
+                cpu += cpuNanos[i];
+            }
+            meanScore = scoreSum / games;
+            meanMoves = movesSum / games;
+            winRate = (double) wins / games;
+
+            double squares = 0;
+            for (int i = from; i < to; i++) {
+                squares += (scores[i] - meanScore) * (scores[i] - meanScore);
+            }
+            double deviation = games > 1 ? Math.sqrt(squares / (games - 1)) : 0;
+            scoreConfidence = Z_95 * deviation / Math.sqrt(games);
+            winRateConfidence = Z_95 * Math.sqrt(winRate * (1 - winRate) / games);
+            gamesPerCpuSecond = cpu == 0 ? Double.POSITIVE_INFINITY : games / (cpu / 1e9);
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public double getMeanScore() {
+            return meanScore;
+        }
+
+        public double getScoreConfidence() {
+            return scoreConfidence;
+        }
+
+        public double getWinRate() {
+            return winRate;
+        }
+
+        public double getWinRateConfidence() {
+            return winRateConfidence;
+        }
+
+        public double getMeanMoves() {
+            return meanMoves;
+        }
+
+        public double getGamesPerCpuSecond() {
+            return gamesPerCpuSecond;
+        }
+    }
+}
@@ -1,11 +1,13 @@
+<%@ page import="spw4.game2048.Assets" trimDirectiveWhitespaces="true" %>
+<% Assets assets = Assets.of(application); %>
 <!DOCTYPE html>
 <html lang="en">
 <head>
     <meta charset="UTF-8">
     <title>2048</title>
-    <link href="css/bootstrap.min.css" rel="stylesheet"/>
-    <link href="icons/bootstrap-icons.css" rel="stylesheet"/>
-    <script src="js/bootstrap.min.js"></script>
+    <link href="<%= assets.url("css/bootstrap.min.css") %>" rel="stylesheet"/>
+    <link href="<%= assets.url("icons/bootstrap-icons.css") %>" rel="stylesheet"/>
+    <script src="<%= assets.url("js/bootstrap.min.js") %>"></script>
 </head>
 <body>
 <h1 class="m-5 text-center">Play 2048:</h1>
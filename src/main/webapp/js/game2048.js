@@ -0,0 +1,335 @@
+/*
+ * Plays 2048 in the browser with the same rules and random numbers as
+ * spw4.game2048.Board, starting from the state the server rendered into
+ * #board. Moves are shown at once and sent to the server in batches
+ * (action=batch) together with the board and score they lead to; the
+ * server replays them and answers 409 Conflict with its own state if the
+ * histories diverge, from which the page continues. At most one full
+ * batch of moves is left unconfirmed, so it can still be sent when the
+ * page is left.
+ *
+ * Without a random state (unknown generator or game over) the page keeps
+ * working through the plain links.
+ */
+(function () {
+    'use strict';
+
+    var BATCH_MOVES = 32;
+    var MAX_BATCH_MOVES = 256;
+    var IDLE_FLUSH_MILLIS = 2000;
+    var RETRY_MILLIS = 1000;
+    var WIN_EXPONENT = 11;
+    var STATE_CONTENT_TYPE = 'application/vnd.game2048.state';
+
+    var container = document.getElementById('board');
+    if (!container || !container.dataset.random || typeof BigInt !== 'function') {
+        return;
+    }
+
+    /* java.util.Random continued from its 48-bit state, see GameRandom. */
+    var MULTIPLIER = BigInt('0x5DEECE66D');
+    var ADDEND = BigInt(11);
+    var MASK = (BigInt(1) << BigInt(48)) - BigInt(1);
+    var randomState = BigInt('0x' + container.dataset.random);
+
+    function next(bits) {
+        randomState = (randomState * MULTIPLIER + ADDEND) & MASK;
+        return Number(BigInt.asIntN(32, randomState >> BigInt(48 - bits)));
+    }
+
+    function nextInt(bound) {
+        var r = next(31);
+        var m = bound - 1;
+        if ((bound & m) === 0) {
+            return Number((BigInt(bound) * BigInt(r)) >> BigInt(31));
+        }
+        for (var u = r; ((u - (r = u % bound) + m) | 0) < 0; u = next(31)) {
+        }
+        return r;
+    }
+
+    /* Cells hold exponents, cell (row, column) at index row * 4 + column. */
+    var id = container.dataset.id;
+    var cells = unpack(container.dataset.board);
+    var score = Number(container.dataset.score);
+    var moves = Number(container.dataset.moves);
+    var confirmedVersion = container.dataset.version;
+
+    var pending = [];
+    var inFlight = null;
+    var over = false;
+    var idleTimer = null;
+    var afterFlush = null;
+
+    function unpack(hex) {
+        var board = [];
+        hex = hex.padStart(16, '0');
+        for (var cell = 0; cell < 16; cell++) {
+            board.push(parseInt(hex.charAt(15 - cell), 16));
+        }
+        return board;
+    }
+
+    function pack(board) {
+        var hex = '';
+        for (var cell = 15; cell >= 0; cell--) {
+            hex += board[cell].toString(16);
+        }
+        return hex.replace(/^0+(?=.)/, '');
+    }
+
+    function move(direction) {
+        var leftRight = direction === 'left' || direction === 'right';
+        var leftUp = direction === 'left' || direction === 'up';
+        var moved = false;
+
+        for (var i = 0; i < 4; i++) {
+            var line = [];
+            for (var k = 0; k < 4; k++) {
+                var j = leftUp ? k : 3 - k;
+                var value = cells[leftRight ? i * 4 + j : j * 4 + i];
+                if (value !== 0) {
+                    line.push(value);
+                }
+            }
+
+            var merged = [];
+            for (k = 0; k < line.length; k++) {
+                value = line[k];
+                if (k + 1 < line.length && line[k + 1] === value) {
+                    value++;
+                    score += 1 << value;
+                    k++;
+                }
+                merged.push(value);
+            }
+
+            for (k = 0; k < 4; k++) {
+                j = leftUp ? k : 3 - k;
+                var cell = leftRight ? i * 4 + j : j * 4 + i;
+                value = k < merged.length ? merged[k] : 0;
+                if (cells[cell] !== value) {
+                    cells[cell] = value;
+                    moved = true;
+                }
+            }
+        }
+
+        var empty = [];
+        for (cell = 0; cell < 16; cell++) {
+            if (cells[cell] === 0) {
+                empty.push(cell);
+            }
+        }
+        if (empty.length > 0 && moved) {
+            value = nextInt(100) < 90 ? 1 : 2;
+            cells[empty[nextInt(empty.length)]] = value;
+        }
+        return moved;
+    }
+
+    function isOver() {
+        if (cells.indexOf(WIN_EXPONENT) >= 0) {
+            return true;
+        }
+        for (var cell = 0; cell < 16; cell++) {
+            var value = cells[cell];
+            if (value === 0
+                    || (cell % 4 < 3 && cells[cell + 1] === value)
+                    || (cell < 12 && cells[cell + 4] === value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    function render() {
+        for (var cell = 0; cell < 16; cell++) {
+            var element = container.querySelector('[data-cell="' + cell + '"]');
+            element.textContent = cells[cell] === 0 ? '0' : String(1 << cells[cell]);
+        }
+        document.querySelector('[data-moves]').textContent = String(moves);
+        document.querySelector('[data-score]').textContent = String(score);
+    }
+
+    function unconfirmed() {
+        return (inFlight ? inFlight.length : 0) + pending.length;
+    }
+
+    function play(direction) {
+        if (over || unconfirmed() >= MAX_BATCH_MOVES || !move(direction)) {
+            return;
+        }
+        moves++;
+        pending.push({move: direction.charAt(0), board: pack(cells), score: score});
+        render();
+
+        over = isOver();
+        clearTimeout(idleTimer);
+        if (over) {
+            flush(function () {
+                location.replace('Game?id=' + id);
+            });
+        } else if (pending.length >= BATCH_MOVES) {
+            flush();
+        } else {
+            idleTimer = setTimeout(flush, IDLE_FLUSH_MILLIS);
+        }
+    }
+
+    function batchUrl(batch) {
+        var last = batch[batch.length - 1];
+        return 'Game?id=' + encodeURIComponent(id) + '&action=batch&since=' + confirmedVersion
+            + '&moves=' + batch.map(function (entry) { return entry.move; }).join('')
+            + '&board=' + last.board + '&score=' + last.score;
+    }
+
+    /*
+     * Sends the pending moves, one batch at a time, and calls done once
+     * the server has confirmed all of them.
+     */
+    function flush(done) {
+        if (done) {
+            afterFlush = done;
+        }
+        if (inFlight) {
+            return;
+        }
+        if (pending.length === 0) {
+            if (afterFlush) {
+                var callback = afterFlush;
+                afterFlush = null;
+                callback();
+            }
+            return;
+        }
+
+        var batch = pending.splice(0, MAX_BATCH_MOVES);
+        inFlight = batch;
+        fetch(batchUrl(batch), {cache: 'no-store'}).then(function (response) {
+            var binary = (response.headers.get('Content-Type') || '').indexOf(STATE_CONTENT_TYPE) === 0;
+            if (response.status === 409 && binary) {
+                return response.arrayBuffer().then(function (buffer) {
+                    restore(readState(new Uint8Array(buffer)));
+                });
+            }
+            if (response.status === 409 || response.status === 404 || response.status === 400) {
+                location.replace('Game?id=' + id);
+                return;
+            }
+            if (!response.ok) {
+                throw new Error('batch failed with ' + response.status);
+            }
+            if (!binary) {
+                location.replace('Game?id=' + id);
+                return;
+            }
+            return response.arrayBuffer().then(function (buffer) {
+                confirmedVersion = readState(new Uint8Array(buffer)).version;
+                inFlight = null;
+                flush();
+            });
+        }).catch(function () {
+            pending = batch.concat(pending);
+            inFlight = null;
+            setTimeout(flush, RETRY_MILLIS);
+        });
+    }
+
+    /*
+     * Continues from the server's state after it rejected a batch. The
+     * moves played since are dropped, they were based on the rejected
+     * history. Without a random state the page is reloaded.
+     */
+    function restore(state) {
+        clearTimeout(idleTimer);
+        inFlight = null;
+        pending = [];
+        if (state.random === null) {
+            location.replace('Game?id=' + id);
+            return;
+        }
+        cells = unpack(state.board);
+        score = state.score;
+        moves = state.moves;
+        confirmedVersion = state.version;
+        randomState = state.random;
+        render();
+
+        over = isOver();
+        if (over) {
+            location.replace('Game?id=' + id);
+        } else {
+            flush();
+        }
+    }
+
+    /* Reads the binary state up to the random state, see GameCodec. */
+    function readState(bytes) {
+        var offset = 17;
+        var board = '';
+        for (var i = 0; i < 8; i++) {
+            board += (bytes[offset++] | 0x100).toString(16).substring(1);
+        }
+
+        function varint() {
+            var value = BigInt(0);
+            for (var shift = 0; ; shift += 7) {
+                var b = bytes[offset++];
+                value |= BigInt(b & 0x7F) << BigInt(shift);
+                if ((b & 0x80) === 0) {
+                    return value;
+                }
+            }
+        }
+
+        var state = {board: board, score: Number(varint()), moves: Number(varint()), version: varint().toString()};
+        offset += 8;
+        var random = varint();
+        state.random = random === BigInt(0) ? null : random - BigInt(1);
+        return state;
+    }
+
+    var KEYS = {
+        ArrowUp: 'up', ArrowDown: 'down', ArrowLeft: 'left', ArrowRight: 'right',
+        w: 'up', s: 'down', a: 'left', d: 'right'
+    };
+
+    document.addEventListener('keydown', function (event) {
+        var direction = KEYS[event.key];
+        if (direction && !event.altKey && !event.ctrlKey && !event.metaKey) {
+            event.preventDefault();
+            play(direction);
+        }
+    });
+
+    document.querySelectorAll('[data-direction]').forEach(function (link) {
+        link.addEventListener('click', function (event) {
+            event.preventDefault();
+            play(link.dataset.direction);
+        });
+    });
+
+    document.querySelectorAll('[data-flush]').forEach(function (link) {
+        link.addEventListener('click', function (event) {
+            event.preventDefault();
+            clearTimeout(idleTimer);
+            flush(function () {
+                location.href = link.href;
+            });
+        });
+    });
+
+    /*
+     * Sends all unconfirmed moves, including a batch still in flight:
+     * the server skips moves it already played, whichever request
+     * arrives first. They fit into one batch because play() waits for
+     * confirmations once a full batch is unconfirmed.
+     */
+    window.addEventListener('pagehide', function () {
+        var batch = (inFlight || []).concat(pending);
+        if (batch.length > 0) {
+            fetch(batchUrl(batch), {cache: 'no-store', keepalive: true});
+        }
+    });
+})();
@@ -0,0 +1,142 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.AdmissionController;
+import spw4.game2048.TokenBucket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControllerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void tryAcquire_withEmptyBucket_returnsFalseUntilRefilled() {
+        TokenBucket bucket = new TokenBucket(2, 1, clock::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(1, bucket.secondsUntilAvailable(0));
+
+        clock.addAndGet(1_000_000_000);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void tryAcquire_withReserve_keepsReservedTokens() {
+        TokenBucket bucket = new TokenBucket(4, 1, clock::get);
+
+        assertTrue(bucket.tryAcquire(2));
+        assertTrue(bucket.tryAcquire(2));
+        assertFalse(bucket.tryAcquire(2));
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void release_afterAcquire_returnsTokenUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 1, clock::get);
+
+        assertTrue(bucket.tryAcquire());
+        bucket.release();
+        bucket.release();
+        assertEquals(2, bucket.getTokens());
+    }
+
+    @Test
+    public void admit_rejectedNewGame_keepsClientTokens() {
+        AdmissionController controller = new AdmissionController(1000, 10, 1, 50, clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            controller.admit("a", true);
+        }
+        for (int i = 0; i < 15; i++) {
+            assertEquals(0, controller.admit("a", false));
+        }
+        assertAll(
+                () -> assertEquals(5, controller.getRejectedNewGames()),
+                () -> assertTrue(controller.admit("a", false) > 0)
+        );
+    }
+
+    @Test
+    public void admit_rejectedByGlobalRate_keepsClientTokens() {
+        AdmissionController controller = new AdmissionController(2, 2, 100, 50, clock::get);
+
+        assertEquals(0, controller.admit("a", false));
+        assertEquals(0, controller.admit("a", false));
+        assertTrue(controller.admit("a", false) > 0);
+
+        clock.addAndGet(1_000_000_000);
+        assertAll(
+                () -> assertEquals(0, controller.admit("a", false)),
+                () -> assertEquals(0, controller.admit("a", false))
+        );
+    }
+
+    @Test
+    public void admit_withinLimits_admitsRequests() {
+        AdmissionController controller = new AdmissionController(100, 10, 1, 50, clock::get);
+
+        assertEquals(0, controller.admit("a", true));
+        assertEquals(0, controller.admit("a", false));
+        assertEquals(1, controller.getAdmittedNewGames());
+        assertEquals(1, controller.getAdmittedMoves());
+    }
+
+    @Test
+    public void admit_clientOverItsRate_isRejectedWithoutAffectingOtherClients() {
+        AdmissionController controller = new AdmissionController(1000, 5, 1, 50, clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, controller.admit("a", false));
+        }
+        assertTrue(controller.admit("a", false) > 0);
+        assertEquals(0, controller.admit("b", false));
+        assertEquals(1, controller.getRejectedMoves());
+    }
+
+    @Test
+    public void admit_whenGlobalRateIsExhausted_prefersMoves() {
+        AdmissionController controller = new AdmissionController(10, 100, 100, 50, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, controller.admit("client" + i, false));
+        }
+        assertTrue(controller.admit("x", true) > 0);
+        assertEquals(0, controller.admit("y", false));
+        assertEquals(1, controller.getRejectedNewGames());
+    }
+
+    @Test
+    public void admit_withHighDelay_shedsNewGamesBeforeMoves() {
+        AdmissionController controller = new AdmissionController(1000, 100, 100, 50, clock::get);
+        for (int i = 0; i < 100; i++) {
+            controller.observeDelay(100_000_000);
+        }
+
+        assertTrue(controller.admit("a", true) > 0);
+        assertEquals(0, controller.admit("a", false));
+
+        for (int i = 0; i < 100; i++) {
+            controller.observeDelay(1_000_000_000);
+        }
+        assertTrue(controller.admit("a", false) > 0);
+        assertEquals(2, controller.getRejectedOverload());
+    }
+
+    @Test
+    public void observeDelay_withShortDelays_recoversFromOverload() {
+        AdmissionController controller = new AdmissionController(1000, 100, 100, 50, clock::get);
+        for (int i = 0; i < 100; i++) {
+            controller.observeDelay(1_000_000_000);
+        }
+        for (int i = 0; i < 100; i++) {
+            controller.observeDelay(0);
+        }
+
+        assertEquals(0, controller.admit("a", true));
+    }
+}
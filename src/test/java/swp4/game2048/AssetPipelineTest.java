@@ -0,0 +1,81 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.game2048.AssetPipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AssetPipelineTest {
+
+    @TempDir
+    Path source;
+    @TempDir
+    Path target;
+
+    @Test
+    public void run_fingerprintsAndCompressesAssets() throws IOException {
+        write("js/app.js", "console.log('2048');");
+        write("js/app.js.map", "{}");
+
+        Map<String, String> manifest = new AssetPipeline(source, target).run();
+
+        String fingerprinted = manifest.get("js/app.js");
+        assertTrue(fingerprinted.matches("js/app\\.[0-9a-f]{12}\\.js"), fingerprinted);
+        assertFalse(manifest.containsKey("js/app.js.map"));
+        assertEquals("console.log('2048');", Files.readString(target.resolve(fingerprinted)));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(target.resolve(fingerprinted + ".gz")))) {
+            assertEquals("console.log('2048');", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void run_withChangedContent_changesFingerprint() throws IOException {
+        write("css/app.css", "body {}");
+        String first = new AssetPipeline(source, target).run().get("css/app.css");
+        write("css/app.css", "body { margin: 0; }");
+        String second = new AssetPipeline(source, target).run().get("css/app.css");
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void run_withFontReferences_rewritesStyleSheet() throws IOException {
+        write("icons/fonts/icons.woff2", "font");
+        write("icons/icons.css", "src: url(\"fonts/icons.woff2?abc\") format(\"woff2\"), url(missing.woff);");
+
+        Map<String, String> manifest = new AssetPipeline(source, target).run();
+
+        String font = manifest.get("icons/fonts/icons.woff2").substring("icons/".length());
+        String css = Files.readString(target.resolve(manifest.get("icons/icons.css")));
+        assertEquals("src: url(\"" + font + "\") format(\"woff2\"), url(missing.woff);", css);
+        assertFalse(Files.exists(target.resolve(manifest.get("icons/fonts/icons.woff2") + ".gz")));
+    }
+
+    @Test
+    public void run_writesManifest() throws IOException {
+        write("css/app.css", "body {}");
+        Map<String, String> manifest = new AssetPipeline(source, target).run();
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(target.resolve("WEB-INF/assets.properties"))) {
+            properties.load(in);
+        }
+        assertEquals(manifest.get("css/app.css"), properties.getProperty("css/app.css"));
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = source.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -11,6 +11,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import spw4.game2048.Board;
 import spw4.game2048.Direction;
+import spw4.game2048.MoveResult;
 import spw4.game2048.Position;
 
 import java.util.ArrayList;
@@ -30,7 +31,7 @@ public class BoardTest {
     @BeforeEach
     public void init() {
         board = new Board();
-        Board.random = new Random();
+        board.random = new Random();
     }
 
     @ParameterizedTest(name = "Value {0}")
@@ -64,7 +65,7 @@ public class BoardTest {
                 .thenReturn(0).thenReturn(2).thenReturn(0)
                 .thenReturn(99).thenReturn(3).thenReturn(1);
 
-        Board.random = random;
+        board.random = random;
 
         board.initialize();
         assertAll(
@@ -80,7 +81,7 @@ public class BoardTest {
                 .thenReturn(95).thenReturn(2).thenReturn(0)
                 .thenReturn(99).thenReturn(3).thenReturn(1);
 
-        Board.random = random;
+        board.random = random;
 
         board.initialize();
         assertAll(
@@ -263,7 +264,7 @@ public class BoardTest {
     @Test
     public void move_withFifteenTiles_addsNewTile() {
 
-        Board.random = new Random();
+        board.random = new Random();
 
         board.setTileValue(2, 0, 0);
         board.setTileValue(4, 0, 1);
@@ -368,4 +369,81 @@ public class BoardTest {
         board.move(Direction.right);
         assertEquals(previousEmptyPositionCount, board.emptyPositions.size());
     }
+
+    @Test
+    public void pack_thenUnpack_restoresBoard() {
+        board.setTileValue(2, 0, 0);
+        board.setTileValue(2048, 1, 2);
+        board.setTileValue(32768, 3, 3);
+
+        Board restored = new Board();
+        restored.unpack(board.pack());
+
+        assertEquals(board.toString(), restored.toString());
+        assertEquals(13, restored.emptyPositions.size());
+    }
+
+    @Test
+    public void pack_withTooLargeTile_throwsException() {
+        board.setTileValue(65536, 0, 0);
+        assertThrows(IllegalStateException.class, () -> board.pack());
+    }
+
+    @Test
+    public void moveAndReport_withMergeAndSlide_describesTiles() {
+        board.setTileValue(2, 0, 1);
+        board.setTileValue(2, 0, 3);
+        board.setTileValue(4, 1, 3);
+
+        MoveResult result = board.moveAndReport(Direction.left);
+        List<MoveResult.Slide> slides = result.getSlides();
+
+        assertAll(
+                () -> assertTrue(result.isMoved()),
+                () -> assertEquals(4, result.getPoints()),
+                () -> assertEquals(3, slides.size()),
+                () -> assertEquals(1, slides.get(0).getFrom().getColumn()),
+                () -> assertEquals(0, slides.get(0).getTo().getColumn()),
+                () -> assertTrue(slides.get(0).isMerged()),
+                () -> assertEquals(3, slides.get(1).getFrom().getColumn()),
+                () -> assertTrue(slides.get(1).isMerged()),
+                () -> assertEquals(1, slides.get(2).getFrom().getRow()),
+                () -> assertEquals(0, slides.get(2).getTo().getColumn()),
+                () -> assertFalse(slides.get(2).isMerged()),
+                () -> assertNotNull(result.getSpawned()),
+                () -> assertEquals(result.getSpawnedValue(),
+                        board.getTileValue(result.getSpawned().getRow(), result.getSpawned().getColumn())),
+                () -> assertEquals(board.pack(), result.getBoard())
+        );
+    }
+
+    @Test
+    public void moveAndReport_withMergeInPlace_listsBothTiles() {
+        board.setTileValue(2, 0, 0);
+        board.setTileValue(2, 0, 1);
+
+        List<MoveResult.Slide> slides = board.moveAndReport(Direction.left).getSlides();
+
+        assertAll(
+                () -> assertEquals(2, slides.size()),
+                () -> assertSame(slides.get(0).getFrom(), slides.get(0).getTo()),
+                () -> assertTrue(slides.get(0).isMerged()),
+                () -> assertEquals(1, slides.get(1).getFrom().getColumn()),
+                () -> assertEquals(0, slides.get(1).getTo().getColumn())
+        );
+    }
+
+    @Test
+    public void moveAndReport_withoutTileMoving_reportsNothing() {
+        board.setTileValue(2, 0, 0);
+
+        MoveResult result = board.moveAndReport(Direction.left);
+
+        assertAll(
+                () -> assertFalse(result.isMoved()),
+                () -> assertTrue(result.getSlides().isEmpty()),
+                () -> assertNull(result.getSpawned()),
+                () -> assertTrue(result.getChangedPositions().isEmpty())
+        );
+    }
 }
@@ -0,0 +1,50 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays engine-parity.txt, which src/test/js/engine-parity.js
+ * replays with the web client's engine, so both engines are checked
+ * against the same boards.
+ */
+public class EngineParityTest {
+
+    @Test
+    public void move_withParityFixture_reachesRecordedBoardsAndScores() throws IOException {
+        List<String> lines;
+        try (InputStream in = EngineParityTest.class.getResourceAsStream("/engine-parity.txt")) {
+            lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).lines()
+                    .filter(line -> !line.startsWith("#"))
+                    .collect(Collectors.toList());
+        }
+
+        String[] start = lines.get(0).split(" ");
+        Game game = new Game(Long.parseLong(start[0]));
+        game.initialize();
+        assertEquals(Long.parseUnsignedLong(start[1], 16), game.board.pack());
+        assertEquals(Long.parseLong(start[2], 16), game.getRandomState());
+
+        for (String line : lines.subList(1, lines.size())) {
+            String[] move = line.split(" ");
+            game.move(Arrays.stream(Direction.values())
+                    .filter(direction -> direction.name().charAt(0) == move[0].charAt(0))
+                    .findFirst().orElseThrow());
+            assertEquals(Long.parseUnsignedLong(move[1], 16), game.board.pack(), line);
+            assertEquals(Integer.parseInt(move[2]), game.getScore(), line);
+        }
+        assertTrue(game.isOver());
+    }
+}
@@ -0,0 +1,114 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.GameCodec;
+import spw4.game2048.GameState;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameCodecTest {
+
+    private final GameState state = new GameState(UUID.randomUUID(), 0xFEDCBA9876543210L, 20480, 1234, 1240,
+            -42, 0xBA9876543210L);
+
+    @Test
+    public void encode_thenDecode_returnsSameState() {
+        GameState decoded = GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(state)));
+        assertAll(
+                () -> assertEquals(state.getId(), decoded.getId()),
+                () -> assertEquals(state.getBoard(), decoded.getBoard()),
+                () -> assertEquals(state.getScore(), decoded.getScore()),
+                () -> assertEquals(state.getMoves(), decoded.getMoves()),
+                () -> assertEquals(state.getVersion(), decoded.getVersion()),
+                () -> assertEquals(state.getSeed(), decoded.getSeed()),
+                () -> assertEquals(state.getRandomState(), decoded.getRandomState())
+        );
+    }
+
+    @Test
+    public void encode_thenDecode_withHistory_returnsSameHistory() {
+        byte[] history = {0, 1, 2, 3, 3, 2, 1};
+        GameState withHistory = new GameState(state.getId(), state.getBoard(), state.getScore(), state.getMoves(),
+                state.getVersion(), state.getSeed(), state.getRandomState(), history);
+
+        byte[] encoded = GameCodec.encode(withHistory);
+        GameState decoded = GameCodec.decode(ByteBuffer.wrap(encoded));
+
+        assertAll(
+                () -> assertArrayEquals(history, decoded.getHistory()),
+                () -> assertNull(GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(state))).getHistory()),
+                () -> assertEquals(GameCodec.encode(state).length + 2, encoded.length)
+        );
+    }
+
+    @Test
+    public void encode_typicalState_isCompact() {
+        assertEquals(1 + 16 + 8 + 3 + 2 + 2 + 8 + 7 + 1, GameCodec.encode(state).length);
+    }
+
+    @Test
+    public void decode_withEarlierVersion_throwsException() {
+        byte[] bytes = GameCodec.encode(state);
+        bytes[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void decode_withTooLongVarint_throwsException() {
+        byte[] bytes = GameCodec.encode(state);
+        byte[] malformed = new byte[GameCodec.MAX_SIZE];
+        System.arraycopy(bytes, 0, malformed, 0, 25);
+        for (int i = 25; i < 31; i++) {
+            malformed[i] = (byte) 0x81;
+        }
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(ByteBuffer.wrap(malformed)));
+    }
+
+    @Test
+    public void decode_withVarintOverflowingInt_throwsException() {
+        byte[] bytes = GameCodec.encode(state);
+        byte[] malformed = new byte[GameCodec.MAX_SIZE];
+        System.arraycopy(bytes, 0, malformed, 0, 25);
+        for (int i = 25; i < 29; i++) {
+            malformed[i] = (byte) 0xFF;
+        }
+        malformed[29] = 0x10;
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(ByteBuffer.wrap(malformed)));
+    }
+
+    @Test
+    public void decode_multipleStatesFromOneBuffer_readsAllStates() {
+        ByteBuffer buffer = ByteBuffer.allocate(3 * GameCodec.MAX_SIZE);
+        for (int i = 0; i < 3; i++) {
+            GameCodec.encode(new GameState(state.getId(), i, i * 4, i), buffer);
+        }
+        buffer.flip();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, GameCodec.decode(buffer).getBoard());
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void decode_withUnknownVersion_throwsException() {
+        byte[] bytes = GameCodec.encode(state);
+        bytes[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void decode_withTruncatedState_throwsException() {
+        byte[] bytes = GameCodec.encode(state);
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(ByteBuffer.wrap(bytes, 0, 20)));
+    }
+
+    @Test
+    public void encode_withNegativeScore_throwsException() {
+        GameState invalid = new GameState(state.getId(), 0, -1, 0);
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.encode(invalid));
+    }
+}
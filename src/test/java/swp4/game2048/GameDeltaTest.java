@@ -0,0 +1,92 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.GameCodec;
+import spw4.game2048.GameDelta;
+import spw4.game2048.GameState;
+import spw4.game2048.PackedBoard;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameDeltaTest {
+
+    @Test
+    public void of_previousVersion_appliesToPreviousBoard() {
+        Game game = movedGame();
+        long before = game.board.pack();
+        long version = game.getVersion();
+        game.moveAndReport(firstChangingMove(game));
+
+        GameDelta delta = GameDelta.of(game, version);
+
+        assertAll(
+                () -> assertNotNull(delta),
+                () -> assertEquals(game.board.pack(), delta.applyTo(before)),
+                () -> assertEquals(game.getVersion(), delta.getVersion()),
+                () -> assertEquals(game.getScore(), delta.getScore()),
+                () -> assertEquals(game.getMoves(), delta.getMoves())
+        );
+    }
+
+    @Test
+    public void of_olderVersion_returnsNull() {
+        Game game = movedGame();
+        long version = game.getVersion();
+        game.moveAndReport(firstChangingMove(game));
+        game.moveAndReport(firstChangingMove(game));
+
+        assertNull(GameDelta.of(game, version));
+    }
+
+    @Test
+    public void of_afterMoveWithoutReport_returnsNull() {
+        Game game = movedGame();
+        long version = game.getVersion();
+        game.move(firstChangingMove(game));
+
+        assertNull(GameDelta.of(game, version));
+    }
+
+    @Test
+    public void encode_thenDecode_returnsSameDelta() {
+        GameDelta delta = GameDelta.between(41, 0x0000000000001221L, new GameState(null, 0x0000000000100003L, 1240, 300, 42));
+        byte[] encoded = GameCodec.encode(delta);
+        GameDelta decoded = GameCodec.decodeDelta(ByteBuffer.wrap(encoded));
+
+        assertAll(
+                () -> assertEquals(1 + 1 + 1 + 2 + 2 + 1 + 5, encoded.length),
+                () -> assertEquals(41, decoded.getBaseVersion()),
+                () -> assertEquals(42, decoded.getVersion()),
+                () -> assertEquals(1240, decoded.getScore()),
+                () -> assertEquals(300, decoded.getMoves()),
+                () -> assertEquals(0x0000000000100003L, decoded.applyTo(0x0000000000001221L))
+        );
+    }
+
+    @Test
+    public void decodeDelta_withState_throwsException() {
+        byte[] state = GameCodec.encode(new GameState(UUID.randomUUID(), 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decodeDelta(ByteBuffer.wrap(state)));
+    }
+
+    private static Game movedGame() {
+        Game game = new Game(7);
+        game.initialize();
+        game.moveAndReport(firstChangingMove(game));
+        return game;
+    }
+
+    private static Direction firstChangingMove(Game game) {
+        for (Direction direction : Direction.values()) {
+            if (PackedBoard.move(game.board.pack(), direction) != game.board.pack()) {
+                return direction;
+            }
+        }
+        throw new IllegalStateException("Game is over.");
+    }
+}
@@ -0,0 +1,38 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.GameRandom;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameRandomTest {
+
+    @Test
+    public void nextInt_withSameSeed_returnsSameNumbersAsRandom() {
+        Random expected = new Random(1234);
+        GameRandom random = new GameRandom(1234);
+
+        for (int i = 0; i < 1000; i++) {
+            int bound = 1 + i % 100;
+            assertEquals(expected.nextInt(bound), random.nextInt(bound));
+        }
+    }
+
+    @Test
+    public void setState_withSavedState_repeatsNumbers() {
+        GameRandom random = new GameRandom(42);
+        random.nextInt(100);
+        long state = random.getState();
+        int first = random.nextInt(100);
+        int second = random.nextInt(16);
+
+        random.setState(state);
+
+        assertAll(
+                () -> assertEquals(first, random.nextInt(100)),
+                () -> assertEquals(second, random.nextInt(16))
+        );
+    }
+}
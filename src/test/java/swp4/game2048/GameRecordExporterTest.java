@@ -0,0 +1,102 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.game2048.Game;
+import spw4.game2048.GameRecord;
+import spw4.game2048.GameRecordExporter;
+import spw4.game2048.GameRecordReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameRecordExporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void offer_thenClose_writesRecordsReadableByReader() throws IOException {
+        GameRecordExporter exporter = new GameRecordExporter(directory, 100, 7, 1000, 10);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(exporter.offer(record(i)));
+        }
+        exporter.close();
+
+        List<GameRecord> records = readAll();
+        assertEquals(20, records.size());
+        assertEquals(20, exporter.getWritten());
+        for (int i = 0; i < 20; i++) {
+            GameRecord record = records.get(i);
+            int index = i;
+            assertAll(
+                    () -> assertEquals(index, record.getSeed()),
+                    () -> assertEquals(0x1234L * index, record.getBoard()),
+                    () -> assertEquals(4 * index, record.getScore()),
+                    () -> assertEquals(index, record.getMoves()),
+                    () -> assertEquals(index % 2 == 0, record.isWon()),
+                    () -> assertArrayEquals(record(index).getHistory(), record.getHistory())
+            );
+        }
+    }
+
+    @Test
+    public void offer_withManyRecords_rollsFiles() throws IOException {
+        GameRecordExporter exporter = new GameRecordExporter(directory, 100, 5, 10, 10);
+        for (int i = 0; i < 30; i++) {
+            exporter.offer(record(i));
+        }
+        exporter.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+        assertEquals(30, readAll().size());
+    }
+
+    @Test
+    public void offer_afterClose_dropsRecord() throws IOException {
+        GameRecordExporter exporter = new GameRecordExporter(directory);
+        exporter.close();
+
+        assertFalse(exporter.offer(record(1)));
+        assertEquals(1, exporter.getDropped());
+    }
+
+    @Test
+    public void offer_withRestoredGame_skipsRecord() throws IOException {
+        GameRecordExporter exporter = new GameRecordExporter(directory);
+        GameRecord record = GameRecord.of(Game.restore(0xAAL, 0, 0, 0, 5, -1, null));
+        exporter.close();
+
+        assertFalse(exporter.offer(record));
+        assertAll(
+                () -> assertEquals(1, exporter.getSkipped()),
+                () -> assertEquals(0, exporter.getDropped())
+        );
+    }
+
+    private GameRecord record(int index) {
+        byte[] history = new byte[index];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = (byte) ((i * 7 + index) % 4);
+        }
+        return new GameRecord(index, history, 0x1234L * index, 4 * index, index, index % 2 == 0);
+    }
+
+    private List<GameRecord> readAll() throws IOException {
+        List<GameRecord> records = new ArrayList<>();
+        GameRecordReader.scan(directory, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                records.add(batch.getRecord(i));
+            }
+        });
+        return records;
+    }
+}
@@ -0,0 +1,226 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.GameSession;
+import spw4.game2048.GameSnapshot;
+import spw4.game2048.GameState;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameSessionTest {
+
+    @Test
+    public void move_publishesNewSnapshotAndKeepsOldOne() {
+        Game game = new Game(7);
+        game.initialize();
+        GameSession session = new GameSession(UUID.randomUUID(), game);
+        GameSnapshot before = session.snapshot();
+        long board = before.getState().getBoard();
+
+        GameSnapshot after = session.move(Direction.left);
+        if (after == before) {
+            after = session.move(Direction.right);
+        }
+        GameSnapshot moved = after;
+
+        assertAll(
+                () -> assertSame(moved, session.snapshot()),
+                () -> assertEquals(before.getVersion() + 1, moved.getVersion()),
+                () -> assertEquals(board, before.getState().getBoard()),
+                () -> assertNotNull(moved.deltaSince(before.getVersion()))
+        );
+    }
+
+    @Test
+    public void move_endingGame_passesGameToCallbackOnce() {
+        // two 1024 tiles in the first row
+        GameSession session = new GameSession(UUID.randomUUID(), Game.restore(0xAAL, 0, 0, 0, Game.DEFAULT_SEED, -1, new byte[0]));
+        AtomicInteger finished = new AtomicInteger();
+
+        GameSnapshot won = session.move(Direction.left, game -> finished.incrementAndGet());
+        GameSnapshot again = session.move(Direction.right, game -> finished.incrementAndGet());
+
+        assertAll(
+                () -> assertTrue(won.isOver()),
+                () -> assertTrue(won.isWon()),
+                () -> assertSame(won, again),
+                () -> assertEquals(1, finished.get())
+        );
+    }
+
+    @Test
+    public void move_afterClose_returnsNullAndKeepsLastSnapshot() {
+        Game game = new Game(7);
+        game.initialize();
+        GameSession session = new GameSession(UUID.randomUUID(), game);
+
+        GameSnapshot last = session.snapshot();
+        GameState closing = session.close();
+
+        assertAll(
+                () -> assertNull(session.move(Direction.left)),
+                () -> assertNull(session.move(Direction.right)),
+                () -> assertNull(session.playBatch(closing.getVersion(), new byte[0],
+                        closing.getBoard(), closing.getScore(), null)),
+                () -> assertTrue(session.isClosed()),
+                () -> assertSame(last, session.snapshot()),
+                () -> assertEquals(last.getState().getBoard(), closing.getBoard())
+        );
+    }
+
+    @Test
+    public void snapshot_duringConcurrentMoves_isNeverTorn() throws InterruptedException {
+        Game game = new Game(11);
+        game.initialize();
+        GameSession session = new GameSession(UUID.randomUUID(), game);
+        long initialVersion = session.snapshot().getVersion();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Random random = new Random(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    session.move(Direction.values()[random.nextInt(4)]);
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            long lastVersion = 0;
+            for (int i = 0; i < 20_000; i++) {
+                GameSnapshot snapshot = session.snapshot();
+                if (snapshot.getVersion() != initialVersion + snapshot.getState().getMoves()
+                        || snapshot.getVersion() < lastVersion) {
+                    failure.compareAndSet(null, "inconsistent snapshot at version " + snapshot.getVersion());
+                }
+                lastVersion = snapshot.getVersion();
+            }
+        }));
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(game.getMoves(), session.snapshot().getState().getMoves());
+        assertEquals(game.getVersion(), session.snapshot().getVersion());
+    }
+
+    @Test
+    public void snapshotAndIsClosed_whileSessionIsLocked_returnWithoutWaiting() throws InterruptedException {
+        Game game = new Game(3);
+        game.initialize();
+        GameSession session = new GameSession(UUID.randomUUID(), game);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (session) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertAll(
+                    () -> assertFalse(session.isClosed()),
+                    () -> assertEquals(game.getVersion(), session.snapshot().getVersion())
+            ));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    @Test
+    public void playBatch_fromStaleVersion_returnsNullAndKeepsSnapshot() {
+        Game game = new Game(7);
+        game.initialize();
+        GameSession session = new GameSession(UUID.randomUUID(), game);
+        GameSnapshot before = session.snapshot();
+
+        GameSnapshot result = session.playBatch(before.getVersion() + 1, new byte[0],
+                before.getState().getBoard(), before.getState().getScore(), null);
+
+        assertAll(
+                () -> assertNull(result),
+                () -> assertSame(before, session.snapshot())
+        );
+    }
+
+    @Test
+    public void playBatch_resentWithFurtherMoves_skipsMovesAlreadyPlayed() {
+        Game game = new Game(5);
+        game.initialize();
+        GameSession session = new GameSession(UUID.randomUUID(), game);
+        long version = session.snapshot().getVersion();
+        Game client = new Game(5);
+        client.initialize();
+        Random random = new Random(3);
+
+        byte[] first = changingMoves(client, random, 3);
+        GameSnapshot firstResult = session.playBatch(version, first, client.board.pack(), client.getScore(), null);
+        byte[] second = changingMoves(client, random, 2);
+        byte[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        GameSnapshot resent = session.playBatch(version, both, client.board.pack(), client.getScore(), null);
+        GameSnapshot again = session.playBatch(version, both, client.board.pack(), client.getScore(), null);
+
+        assertAll(
+                () -> assertNotNull(firstResult),
+                () -> assertEquals(version + 5, resent.getVersion()),
+                () -> assertEquals(client.board.pack(), resent.getState().getBoard()),
+                () -> assertSame(resent, again)
+        );
+    }
+
+    @Test
+    public void playBatch_withDifferentMovesFromOlderVersion_returnsNull() {
+        Game game = new Game(5);
+        game.initialize();
+        GameSession session = new GameSession(UUID.randomUUID(), game);
+        long version = session.snapshot().getVersion();
+        Game client = new Game(5);
+        client.initialize();
+
+        byte[] played = changingMoves(client, new Random(3), 2);
+        session.playBatch(version, played, client.board.pack(), client.getScore(), null);
+        byte[] changed = played.clone();
+        changed[0] = (byte) ((changed[0] + 1) % 4);
+
+        assertNull(session.playBatch(version, changed, client.board.pack(), client.getScore(), null));
+    }
+
+    private static byte[] changingMoves(Game game, Random random, int count) {
+        byte[] directions = new byte[count];
+        for (int i = 0; i < count; ) {
+            Direction direction = Direction.values()[random.nextInt(4)];
+            long before = game.getVersion();
+            game.move(direction);
+            if (game.getVersion() != before) {
+                directions[i++] = (byte) direction.ordinal();
+            }
+        }
+        return directions;
+    }
+}
@@ -8,6 +8,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import spw4.game2048.Board;
 import spw4.game2048.Direction;
 import spw4.game2048.Game;
+import spw4.game2048.GameState;
 
 import java.util.ArrayList;
 import java.util.Random;
@@ -72,7 +73,7 @@ public class GameTest {
                 .thenReturn(0).thenReturn(0).thenReturn(0)
                 .thenReturn(0).thenReturn(1).thenReturn(0);
 
-        Board.random = random;
+        game.board.random = random;
 
         game.initialize();
         game.move(Direction.down);
@@ -106,4 +107,128 @@ public class GameTest {
 
         assertTrue(game.isOver());
     }
+
+    @Test
+    public void getHistory_afterMoves_returnsDirectionsOfMovesWhichChangedBoard() {
+        game.board.setTileValue(2, 0, 0);
+        game.board.random = new Random(1);
+
+        game.move(Direction.left);
+        game.move(Direction.right);
+        game.move(Direction.down);
+
+        byte[] history = game.getHistory();
+        assertEquals(game.getMoves(), history.length);
+        assertEquals(Direction.right.ordinal(), history[0]);
+    }
+
+    @Test
+    public void getVersion_afterMoveWithoutChange_staysTheSame() {
+        game.board.setTileValue(2, 0, 0);
+        long version = game.getVersion();
+
+        game.move(Direction.left);
+        assertEquals(version, game.getVersion());
+
+        game.move(Direction.right);
+        assertEquals(version + 1, game.getVersion());
+    }
+
+    @Test
+    public void playBatch_withMovesLeadingToClaimedState_keepsMoves() {
+        Game client = new Game(5);
+        client.initialize();
+        game = new Game(5);
+        game.initialize();
+        byte[] directions = changingMoves(client, 20);
+
+        assertTrue(game.playBatch(directions, client.board.pack(), client.getScore()));
+        assertAll(
+                () -> assertEquals(client.board.pack(), game.board.pack()),
+                () -> assertEquals(client.getMoves(), game.getMoves()),
+                () -> assertEquals(client.getVersion(), game.getVersion()),
+                () -> assertEquals(client.getRandomState(), game.getRandomState())
+        );
+    }
+
+    @Test
+    public void playBatch_withWrongBoardOrScore_leavesGameUnchanged() {
+        Game client = new Game(5);
+        client.initialize();
+        game = new Game(5);
+        game.initialize();
+        long board = game.board.pack();
+        long randomState = game.getRandomState();
+        byte[] directions = changingMoves(client, 20);
+
+        assertFalse(game.playBatch(directions, client.board.pack() ^ 1, client.getScore()));
+        assertFalse(game.playBatch(directions, client.board.pack(), client.getScore() + 4));
+        assertAll(
+                () -> assertEquals(board, game.board.pack()),
+                () -> assertEquals(0, game.getScore()),
+                () -> assertEquals(0, game.getMoves()),
+                () -> assertEquals(0, game.getHistory().length),
+                () -> assertEquals(randomState, game.getRandomState())
+        );
+    }
+
+    @Test
+    public void playBatch_withMoveNotChangingBoard_returnsFalse() {
+        game.board.setTileValue(2, 0, 0);
+
+        assertFalse(game.playBatch(new byte[]{(byte) Direction.left.ordinal()}, game.board.pack(), 0));
+        assertEquals(0, game.getMoves());
+    }
+
+    private static byte[] changingMoves(Game game, int count) {
+        byte[] directions = new byte[count];
+        Random random = new Random(11);
+        for (int i = 0; i < count && !game.isOver(); ) {
+            Direction direction = Direction.values()[random.nextInt(4)];
+            long before = game.getVersion();
+            game.move(direction);
+            if (game.getVersion() != before) {
+                directions[i++] = (byte) direction.ordinal();
+            }
+        }
+        return directions;
+    }
+
+    @Test
+    public void restore_fromState_spawnsSameTilesAsOriginal() {
+        Game original = new Game(9);
+        original.initialize();
+        original.move(Direction.left);
+        original.move(Direction.up);
+
+        Game restored = GameState.of(null, original).toGame();
+        for (Direction direction : Direction.values()) {
+            original.move(direction);
+            restored.move(direction);
+        }
+
+        assertAll(
+                () -> assertEquals(original.getSeed(), restored.getSeed()),
+                () -> assertEquals(original.board.pack(), restored.board.pack()),
+                () -> assertEquals(original.getRandomState(), restored.getRandomState())
+        );
+    }
+
+    @Test
+    public void move_onInterleavedGamesWithSameSeed_spawnsSameTiles() {
+        Game first = new Game(7);
+        Game second = new Game(7);
+        Game other = new Game(8);
+        first.initialize();
+        other.initialize();
+        second.initialize();
+
+        for (Direction direction : Direction.values()) {
+            first.move(direction);
+            other.move(direction);
+            second.move(direction);
+        }
+
+        assertEquals(first.toString(), second.toString());
+    }
 }
@@ -0,0 +1,44 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.LoadGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void percentile_onEmptyHistogram_returnsZero() {
+        LoadGenerator.Histogram histogram = new LoadGenerator.Histogram();
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    public void percentile_withSmallValues_returnsExactValues() {
+        LoadGenerator.Histogram histogram = new LoadGenerator.Histogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        assertAll(
+                () -> assertEquals(10, histogram.count()),
+                () -> assertEquals(5, histogram.percentile(50)),
+                () -> assertEquals(9, histogram.percentile(90)),
+                () -> assertEquals(10, histogram.max())
+        );
+    }
+
+    @Test
+    public void percentile_withLargeValues_staysWithinRelativeError() {
+        LoadGenerator.Histogram histogram = new LoadGenerator.Histogram();
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i);
+        }
+        long p50 = histogram.percentile(50);
+        long p99 = histogram.percentile(99);
+        assertAll(
+                () -> assertTrue(Math.abs(p50 - 50_000) <= 50_000 * 0.07, "p50 = " + p50),
+                () -> assertTrue(Math.abs(p99 - 99_000) <= 99_000 * 0.07, "p99 = " + p99),
+                () -> assertEquals(100_000, histogram.percentile(100))
+        );
+    }
+}
@@ -0,0 +1,68 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.game2048.NTupleNetwork;
+import spw4.game2048.NTupleTrainer;
+import spw4.game2048.PackedBoard;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NTupleNetworkTest {
+
+    private final static long BOARD = 0x0000_0000_1200_0341L;
+
+    private NTupleNetwork network;
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void init() {
+        network = new NTupleNetwork(NTupleNetwork.smallTuples());
+    }
+
+    @Test
+    public void value_onNewNetwork_returnsZero() {
+        assertEquals(0, network.value(BOARD));
+    }
+
+    @Test
+    public void update_withPositiveDelta_increasesValue() {
+        network.update(BOARD, 8);
+        assertTrue(network.value(BOARD) >= 8);
+    }
+
+    @Test
+    public void value_ofTransposedBoard_equalsValueOfBoard() {
+        network.update(BOARD, 5);
+        assertEquals(network.value(BOARD), network.value(PackedBoard.transpose(BOARD)), 1e-4);
+    }
+
+    @Test
+    public void map_afterSave_returnsSameValues() throws IOException {
+        network.update(BOARD, 3);
+        network.update(0x1234L, -2);
+        Path file = directory.resolve("network.bin");
+        network.save(file);
+
+        NTupleNetwork mapped = NTupleNetwork.map(file);
+
+        assertAll(
+                () -> assertEquals(network.size(), mapped.size()),
+                () -> assertEquals(network.value(BOARD), mapped.value(BOARD), 1e-6),
+                () -> assertEquals(network.value(0x1234L), mapped.value(0x1234L), 1e-6),
+                () -> assertThrows(IllegalStateException.class, () -> mapped.update(BOARD, 1))
+        );
+    }
+
+    @Test
+    public void train_withSeveralThreads_learnsPositiveValues() throws InterruptedException {
+        NTupleTrainer trainer = new NTupleTrainer(network, 0.1);
+        trainer.train(200, 2, 1000);
+        assertTrue(network.value(PackedBoard.move(BOARD, network.bestMove(BOARD))) > 0);
+    }
+}
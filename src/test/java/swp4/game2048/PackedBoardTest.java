@@ -0,0 +1,122 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import spw4.game2048.Board;
+import spw4.game2048.Direction;
+import spw4.game2048.PackedBoard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedBoardTest {
+
+    @ParameterizedTest(name = "Direction {0}")
+    @EnumSource(Direction.class)
+    public void move_onRandomBoards_matchesBoardBeforeSpawn(Direction direction) {
+        Random random = new Random(7);
+        for (int n = 0; n < 1000; n++) {
+            Board board = randomBoard(random);
+            long packed = board.pack();
+            int points = board.getPoints();
+
+            boolean moved = board.move(direction);
+            long expected = board.pack();
+            long actual = PackedBoard.move(packed, direction);
+
+            assertEquals(moved, actual != packed);
+            assertEquals(board.getPoints() - points, PackedBoard.score(packed, direction));
+            if (moved) {
+                assertEquals(1, spawnedTiles(actual, expected));
+            } else {
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void main_writesTablesEqualToBuildResource(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("tables.bin");
+        PackedBoard.main(new String[]{file.toString()});
+
+        try (InputStream resource = PackedBoard.class.getResourceAsStream("packed-board-tables.bin")) {
+            assertNotNull(resource);
+            assertArrayEquals(resource.readAllBytes(), Files.readAllBytes(file));
+        }
+    }
+
+    @Test
+    public void transpose_twice_returnsSameBoard() {
+        long board = 0x0123456789ABCDEFL;
+        assertEquals(board, PackedBoard.transpose(PackedBoard.transpose(board)));
+    }
+
+    @Test
+    public void transpose_swapsRowsAndColumns() {
+        Board board = new Board();
+        board.setTileValue(2, 0, 1);
+        board.setTileValue(4, 2, 3);
+        Board transposed = new Board();
+        transposed.unpack(PackedBoard.transpose(board.pack()));
+
+        assertAll(
+                () -> assertEquals(2, transposed.getTileValue(1, 0)),
+                () -> assertEquals(4, transposed.getTileValue(3, 2)),
+                () -> assertEquals(0, transposed.getTileValue(0, 1))
+        );
+    }
+
+    @Test
+    public void spawn_withSameRandom_matchesBoardSpawn() {
+        Board board = new Board(new Random(3));
+        board.setTileValue(2, 0, 0);
+        long packed = board.pack();
+
+        board.move(Direction.right);
+        long expected = board.pack();
+
+        assertEquals(expected, PackedBoard.spawn(PackedBoard.move(packed, Direction.right), new Random(3)));
+    }
+
+    @Test
+    public void canMove_onFullBoardWithoutMerges_returnsFalse() {
+        Board board = new Board();
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                board.setTileValue((row + column) % 2 == 0 ? 2 : 4, row, column);
+            }
+        }
+        assertFalse(PackedBoard.canMove(board.pack()));
+    }
+
+    private int spawnedTiles(long moved, long spawned) {
+        int count = 0;
+        for (int i = 0; i < 16; i++) {
+            long before = (moved >>> (4 * i)) & 0xF;
+            long after = (spawned >>> (4 * i)) & 0xF;
+            if (before != after) {
+                assertEquals(0, before);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Board randomBoard(Random random) {
+        Board board = new Board(new Random(random.nextLong()));
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                int exponent = random.nextInt(6);
+                board.setTileValue(exponent == 0 ? 0 : 1 << exponent, row, column);
+            }
+        }
+        return board;
+    }
+}
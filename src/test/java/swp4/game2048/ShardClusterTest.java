@@ -0,0 +1,162 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Direction;
+import spw4.game2048.Game;
+import spw4.game2048.GameSession;
+import spw4.game2048.GameState;
+import spw4.game2048.ShardCluster;
+import spw4.game2048.ShardNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardClusterTest {
+
+    private ShardCluster cluster;
+    private List<UUID> ids;
+
+    @BeforeEach
+    public void init() {
+        cluster = new ShardCluster();
+        cluster.join(new ShardNode("a", "http://a/Game"));
+        cluster.join(new ShardNode("b", "http://b/Game"));
+        cluster.join(new ShardNode("c", "http://c/Game"));
+
+        ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            UUID id = UUID.randomUUID();
+            Game game = new Game();
+            game.initialize();
+            cluster.nodeFor(id).put(id, game);
+            ids.add(id);
+        }
+    }
+
+    @Test
+    public void nodeFor_withSameId_returnsSameNode() {
+        UUID id = ids.get(0);
+        assertSame(cluster.nodeFor(id), cluster.nodeFor(id));
+    }
+
+    @Test
+    public void nodeFor_withManyIds_spreadsGamesEvenly() {
+        for (ShardNode node : cluster.nodes()) {
+            assertTrue(node.size() > 600 && node.size() < 1400, node.getId() + " owns " + node.size());
+        }
+    }
+
+    @Test
+    public void newIdFor_returnsIdOwnedByNode() {
+        ShardNode node = cluster.node("b");
+        assertSame(node, cluster.nodeFor(cluster.newIdFor(node)));
+    }
+
+    @Test
+    public void join_newNode_migratesOnlyGamesItNowOwns() {
+        ShardNode d = new ShardNode("d", "http://d/Game");
+        cluster.join(d);
+
+        assertTrue(d.size() > 0);
+        assertTrue(d.size() < ids.size() / 2);
+        for (UUID id : ids) {
+            assertNotNull(cluster.nodeFor(id).get(id));
+        }
+        assertEquals(ids.size(), totalGames());
+    }
+
+    @Test
+    public void join_newNode_closesAndRemovesMigratedSessions() {
+        ShardNode d = new ShardNode("d", "http://d/Game");
+        ShardCluster next = new ShardCluster();
+        for (ShardNode node : cluster.nodes()) {
+            next.join(new ShardNode(node.getId(), node.getUrl()));
+        }
+        next.join(new ShardNode("d", "http://d/Game"));
+        UUID id = ids.stream().filter(i -> next.nodeFor(i).getId().equals("d")).findFirst().orElseThrow();
+        ShardNode previousOwner = cluster.nodeFor(id);
+        GameSession session = previousOwner.get(id);
+
+        cluster.join(d);
+
+        assertAll(
+                () -> assertTrue(session.isClosed()),
+                () -> assertNull(session.move(Direction.left)),
+                () -> assertNull(previousOwner.get(id)),
+                () -> assertFalse(d.get(id).isClosed())
+        );
+    }
+
+    @Test
+    public void leave_node_migratesAllItsGames() {
+        cluster.leave("a");
+
+        assertNull(cluster.node("a"));
+        for (UUID id : ids) {
+            assertNotNull(cluster.nodeFor(id).get(id));
+        }
+        assertEquals(ids.size(), totalGames());
+    }
+
+    @Test
+    public void leave_node_keepsGameState() {
+        UUID id = ids.stream().filter(i -> cluster.nodeFor(i).getId().equals("a")).findFirst().orElseThrow();
+        GameSession session = cluster.nodeFor(id).get(id);
+        session.move(Direction.left);
+        GameState expected = session.move(Direction.up).getState();
+
+        cluster.leave("a");
+
+        GameState actual = cluster.nodeFor(id).get(id).snapshot().getState();
+        assertAll(
+                () -> assertEquals(expected.getBoard(), actual.getBoard()),
+                () -> assertEquals(expected.getScore(), actual.getScore()),
+                () -> assertEquals(expected.getMoves(), actual.getMoves()),
+                () -> assertEquals(expected.getVersion(), actual.getVersion()),
+                () -> assertEquals(expected.getSeed(), actual.getSeed()),
+                () -> assertEquals(expected.getRandomState(), actual.getRandomState())
+        );
+    }
+
+    @Test
+    public void leave_node_keepsGamesReplayable() {
+        UUID id = ids.stream().filter(i -> cluster.nodeFor(i).getId().equals("a")).findFirst().orElseThrow();
+        GameSession session = cluster.nodeFor(id).get(id);
+        session.move(Direction.left);
+        session.move(Direction.up);
+
+        cluster.leave("a");
+
+        GameState migrated = cluster.nodeFor(id).get(id).close();
+        Game replayed = new Game(migrated.getSeed());
+        replayed.initialize();
+        for (byte direction : migrated.getHistory()) {
+            replayed.move(Direction.values()[direction]);
+        }
+        assertAll(
+                () -> assertEquals(migrated.getMoves(), migrated.getHistory().length),
+                () -> assertEquals(migrated.getBoard(), replayed.board.pack()),
+                () -> assertTrue(migrated.toGame().isReplayable())
+        );
+    }
+
+    @Test
+    public void leave_lastNode_throwsException() {
+        cluster.leave("a");
+        cluster.leave("b");
+        assertThrows(IllegalStateException.class, () -> cluster.leave("c"));
+    }
+
+    @Test
+    public void parse_withInvalidConfiguration_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> ShardCluster.parse("a=http://a/Game,b"));
+    }
+
+    private int totalGames() {
+        return cluster.nodes().stream().mapToInt(ShardNode::size).sum();
+    }
+}
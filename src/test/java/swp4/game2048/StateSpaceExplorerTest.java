@@ -0,0 +1,76 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.game2048.Direction;
+import spw4.game2048.PackedBoard;
+import spw4.game2048.StateSpaceExplorer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StateSpaceExplorerTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void move_onFullSizeBoard_matchesPackedBoard() {
+        StateSpaceExplorer explorer = new StateSpaceExplorer(4, 11, pool, null, Long.MAX_VALUE);
+        Random random = new Random(3);
+        for (int n = 0; n < 1000; n++) {
+            long board = 0;
+            for (int cell = 0; cell < 16; cell++) {
+                board |= (long) random.nextInt(4) << (4 * cell);
+            }
+            for (Direction direction : Direction.values()) {
+                assertEquals(PackedBoard.move(board, direction), explorer.move(board, direction));
+                assertEquals(PackedBoard.score(board, direction), explorer.score(board, direction));
+            }
+        }
+    }
+
+    @Test
+    public void explore_winningTile4_scoresOnlyTheFirstMerge() throws IOException {
+        StateSpaceExplorer.Result result = new StateSpaceExplorer(2, 2, pool, null, Long.MAX_VALUE).explore();
+
+        assertAll(
+                () -> assertEquals(1.0, result.getWinProbability(), 1e-12),
+                // two 2s are adjacent in 4 of 6 cases, otherwise a spawned 4 may win before they merge
+                () -> assertEquals(0.81 * (4 * 4.0 / 6 + 0.9 * 4 * 2.0 / 6), result.getExpectedScore(), 1e-12)
+        );
+    }
+
+    @Test
+    public void explore_withSpilling_equalsInMemoryResult(@TempDir Path directory) throws IOException {
+        StateSpaceExplorer.Result inMemory = new StateSpaceExplorer(2, 6, pool, null, Long.MAX_VALUE).explore();
+        StateSpaceExplorer.Result spilled = new StateSpaceExplorer(2, 6, pool, directory, 10).explore();
+
+        assertAll(
+                () -> assertTrue(spilled.getSpilledStates() > 0),
+                () -> assertEquals(inMemory.getStates(), spilled.getStates()),
+                () -> assertEquals(inMemory.getExpectedScore(), spilled.getExpectedScore(), 1e-9),
+                () -> assertEquals(inMemory.getWinProbability(), spilled.getWinProbability(), 1e-12)
+        );
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package swp4.game2048;
+
+import org.junit.jupiter.api.Test;
+import spw4.game2048.Game;
+import spw4.game2048.Policies;
+import spw4.game2048.Tournament;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TournamentTest {
+
+    private final long[] seeds = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    @Test
+    public void play_withSameSeed_returnsSameGame() {
+        Game first = Tournament.play(Policies.random(), 42);
+        Game second = Tournament.play(Policies.random(), 42);
+
+        assertTrue(first.isOver());
+        assertEquals(first.toString(), second.toString());
+    }
+
+    @Test
+    public void run_inParallel_matchesSequentialGames() {
+        Tournament tournament = new Tournament(List.of(Policies.random(), Policies.corner()), seeds);
+
+        List<Tournament.Result> results = tournament.run(new ForkJoinPool(4));
+
+        for (Tournament.Result result : results) {
+            double expected = 0;
+            for (long seed : seeds) {
+                expected += Tournament.play(result.getPolicy().equals("random") ? Policies.random() : Policies.corner(), seed).getScore();
+            }
+            assertEquals(expected / seeds.length, result.getMeanScore(), 1e-9);
+            assertEquals(seeds.length, result.getGames());
+        }
+    }
+
+    @Test
+    public void run_withSeveralPolicies_ranksByMeanScore() {
+        Tournament tournament = new Tournament(List.of(Policies.random(), Policies.corner(), Policies.greedy()), seeds);
+
+        List<Tournament.Result> results = tournament.run(ForkJoinPool.commonPool());
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).getMeanScore() >= results.get(1).getMeanScore());
+        assertTrue(results.get(1).getMeanScore() >= results.get(2).getMeanScore());
+        assertTrue(results.get(0).getScoreConfidence() >= 0);
+    }
+
+    @Test
+    public void tournament_withoutSeeds_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> new Tournament(List.of(Policies.random()), new long[0]));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Replays src/test/resources/engine-parity.txt with the engine of
+ * src/main/webapp/js/game2048.js, like EngineParityTest does with Board,
+ * and fails if a board or score differs. Run from the project directory:
+ *
+ *     node src/test/js/engine-parity.js
+ *
+ * or with mvn -Pjs-parity test.
+ */
+'use strict';
+
+var fs = require('fs');
+var vm = require('vm');
+
+var fixture = fs.readFileSync('src/test/resources/engine-parity.txt', 'utf8').split('\n')
+    .filter(function (line) { return line && line.charAt(0) !== '#'; })
+    .map(function (line) { return line.split(' '); });
+
+var start = fixture[0];
+var cells = [];
+for (var i = 0; i < 16; i++) {
+    cells.push({textContent: ''});
+}
+var counters = {'[data-moves]': {textContent: ''}, '[data-score]': {textContent: ''}};
+var container = {
+    dataset: {id: 'parity', version: '1', board: start[1], score: '0', moves: '0', random: start[2]},
+    querySelector: function (selector) { return cells[Number(/\d+/.exec(selector)[0])]; }
+};
+var keydown = null;
+
+var context = {
+    BigInt: BigInt,
+    document: {
+        getElementById: function () { return container; },
+        querySelector: function (selector) { return counters[selector]; },
+        querySelectorAll: function () { return []; },
+        addEventListener: function (type, listener) { keydown = listener; }
+    },
+    window: {addEventListener: function () {}},
+    location: {replace: function () {}},
+    setTimeout: function () { return 0; },
+    clearTimeout: function () {},
+    fetch: function () { return new Promise(function () {}); }
+};
+vm.runInNewContext(fs.readFileSync('src/main/webapp/js/game2048.js', 'utf8'), context);
+
+var KEYS = {u: 'ArrowUp', d: 'ArrowDown', l: 'ArrowLeft', r: 'ArrowRight'};
+var score = '0';
+
+function board() {
+    var hex = '';
+    for (var cell = 15; cell >= 0; cell--) {
+        var value = Number(cells[cell].textContent);
+        hex += (value === 0 ? 0 : Math.log2(value)).toString(16);
+    }
+    return hex.replace(/^0+(?=.)/, '');
+}
+
+for (i = 1; i < fixture.length; i++) {
+    var move = fixture[i];
+    keydown({key: KEYS[move[0]], preventDefault: function () {}});
+    if (counters['[data-score]'].textContent !== '') {
+        score = counters['[data-score]'].textContent;
+    }
+    var actual = cells[0].textContent === '' ? start[1] : board();
+    if (actual !== move[1] || score !== move[2]) {
+        console.error('Move ' + i + ' (' + move.join(' ') + '): client reached ' + actual + ' ' + score);
+        process.exit(1);
+    }
+}
+console.log('Client engine matches ' + (fixture.length - 1) + ' recorded moves.');